@@ -0,0 +1,44 @@
+-- Plans and insert rate of the statements that touch balances and transactions. Run before and
+-- after a schema migration against a database with representative data and compare the output:
+--   psql -h localhost -U tuum -d account -f scripts/balance-queries.sql
+\timing on
+
+\set account_id '(select account_id from account_balance limit 1)'
+
+explain (analyze, buffers, costs off)
+select account_id, currency, balance
+from account_balance
+where account_id = :account_id
+  and currency = 'EUR'
+for update;
+
+explain (analyze, buffers, costs off)
+select id, customer_id, country, currency, sum(balance) as balance
+from account a
+         left join account_balance ab on a.id = ab.account_id
+where a.id = :account_id
+group by id, customer_id, country, currency;
+
+explain (analyze, buffers, costs off)
+select id, account_id, amount, currency, direction, description
+from transaction
+where account_id = :account_id
+order by created_at, id
+limit 100;
+
+explain (analyze, buffers, costs off)
+select day, currency,
+       coalesce(sum(amount) filter (where direction = 'IN'), 0) as in_amount,
+       coalesce(sum(amount) filter (where direction = 'OUT'), 0) as out_amount
+from account_turnover
+where account_id = :account_id
+  and day between current_date - 365 and current_date
+group by day, currency
+order by day, currency;
+
+-- insert rate, rolled back so that the script can be run repeatedly
+begin;
+insert into transaction (account_id, amount, currency, direction, description)
+select :account_id, 1, 'EUR', 'IN', 'insert rate ' || i
+from generate_series(1, 100000) i;
+rollback;
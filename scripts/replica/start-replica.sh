@@ -0,0 +1,12 @@
+#!/bin/bash
+# Copies the primary and follows it as a streaming replica. The copy is retried until the primary
+# accepts connections.
+set -e
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+  until pg_basebackup -h postgres -U tuum -D "$PGDATA" -R -X stream; do
+    rm -rf "${PGDATA:?}"/*
+    sleep 1
+  done
+  chmod 0700 "$PGDATA"
+fi
+exec postgres
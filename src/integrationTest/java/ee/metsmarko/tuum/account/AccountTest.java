@@ -1,19 +1,27 @@
 package ee.metsmarko.tuum.account;
 
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.USD;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 import ee.metsmarko.tuum.account.event.AccountCreateEvent;
 import ee.metsmarko.tuum.account.event.BalanceChangeEvent;
 import ee.metsmarko.tuum.account.event.TransactionCreateEvent;
 import ee.metsmarko.tuum.exception.ErrorResponse;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -30,10 +38,12 @@ import org.springframework.boot.test.util.TestPropertyValues;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.containers.RabbitMQContainer;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -112,39 +122,93 @@ public class AccountTest {
     CreateTransactionResponse createTransactionResponse =
         createTransactionAndVerify(account,
             new CreateTransactionRequest(BigDecimal.TEN, "EUR", TransactionDirection.IN, "desc1"));
-    assertEquals(BigDecimal.TEN, createTransactionResponse.currentBalance());
+    assertEquals(eur(10), createTransactionResponse.currentBalance());
 
     account = getAccount(account.getId());
 
-    assertEquals(BigDecimal.TEN, getBalance(account, "EUR").getBalance());
-    assertEquals(BigDecimal.ZERO, getBalance(account, "USD").getBalance());
+    assertEquals(eur(10), getBalance(account, EUR).getBalance());
+    assertEquals(Money.zero(USD), getBalance(account, USD).getBalance());
 
     CreateTransactionResponse createTransactionResponse2 =
         createTransactionAndVerify(account,
             new CreateTransactionRequest(BigDecimal.TEN, "EUR", TransactionDirection.OUT, "desc2"));
-    assertEquals(BigDecimal.ZERO, createTransactionResponse2.currentBalance());
+    assertEquals(Money.zero(EUR), createTransactionResponse2.currentBalance());
 
     account = getAccount(account.getId());
 
-    assertEquals(BigDecimal.ZERO, getBalance(account, "EUR").getBalance());
-    assertEquals(BigDecimal.ZERO, getBalance(account, "USD").getBalance());
+    assertEquals(Money.zero(EUR), getBalance(account, EUR).getBalance());
+    assertEquals(Money.zero(USD), getBalance(account, USD).getBalance());
 
     List<Transaction> transactions = getTransactions(account.getId());
     assertEquals(2, transactions.size());
 
-    assertEquals(BigDecimal.TEN, transactions.get(0).getAmount());
-    assertEquals("EUR", transactions.get(0).getCurrency());
+    assertEquals(eur(10), transactions.get(0).getAmount());
+    assertEquals(EUR, transactions.get(0).getCurrency());
     assertEquals("desc1", transactions.get(0).getDescription());
     assertEquals(TransactionDirection.IN, transactions.get(0).getDirection());
     assertEquals(account.getId(), transactions.get(0).getAccountId());
 
-    assertEquals(BigDecimal.TEN, transactions.get(1).getAmount());
-    assertEquals("EUR", transactions.get(1).getCurrency());
+    assertEquals(eur(10), transactions.get(1).getAmount());
+    assertEquals(EUR, transactions.get(1).getCurrency());
     assertEquals("desc2", transactions.get(1).getDescription());
     assertEquals(TransactionDirection.OUT, transactions.get(1).getDirection());
     assertEquals(account.getId(), transactions.get(1).getAccountId());
   }
 
+  @Test
+  void testTransactionPaging() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    for (int i = 0; i < 5; i++) {
+      createTransactionAndVerify(account,
+          new CreateTransactionRequest(BigDecimal.ONE, "EUR", TransactionDirection.IN, "tx" + i));
+    }
+
+    TransactionPage first = getTransactionPage(account.getId(), null, 2);
+    TransactionPage second = getTransactionPage(account.getId(), first.nextCursor(), 2);
+    TransactionPage third = getTransactionPage(account.getId(), second.nextCursor(), 2);
+
+    assertEquals(List.of("tx0", "tx1"), descriptions(first));
+    assertEquals(List.of("tx2", "tx3"), descriptions(second));
+    assertEquals(List.of("tx4"), descriptions(third));
+    assertNull(third.nextCursor());
+  }
+
+  @Test
+  void testExportTransactions() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    for (int i = 0; i < 3; i++) {
+      createTransactionAndVerify(account,
+          new CreateTransactionRequest(BigDecimal.ONE, "EUR", TransactionDirection.IN, "tx" + i));
+    }
+
+    MvcResult asyncResult = mockMvc
+        .perform(get("/api/account/{id}/transactions/export", account.getId()))
+        .andExpect(request().asyncStarted()).andReturn();
+    MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andReturn();
+
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertEquals(3, lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      Transaction transaction = mapper.readValue(lines[i], Transaction.class);
+      assertEquals("tx" + i, transaction.getDescription());
+      assertEquals(account.getId(), transaction.getAccountId());
+    }
+  }
+
+  @Test
+  void testExportTransactionsForInvalidAccount() throws Exception {
+    mockMvc
+        .perform(get("/api/account/{id}/transactions/export", UUID.randomUUID()))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void testInsufficientFunds() throws Exception {
     Account account = createAccountAndVerify(
@@ -153,24 +217,232 @@ public class AccountTest {
     CreateTransactionRequest transactionReq =
         new CreateTransactionRequest(BigDecimal.TEN, "EUR", TransactionDirection.OUT, "desc2");
 
+    MvcResult result = performTransaction(
+        post("/api/account/{id}/transaction", account.getId())
+            .content(mapper.writeValueAsBytes(transactionReq))
+            .contentType(MediaType.APPLICATION_JSON)
+    );
+    status().isBadRequest().match(result);
+
+    ErrorResponse error =
+        mapper.readValue(result.getResponse().getContentAsByteArray(), ErrorResponse.class);
+    assertEquals("insufficient funds", error.error());
+  }
+
+  @Test
+  void testIdempotentTransaction() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", TransactionDirection.IN, "retried");
+
+    CreateTransactionResponse first = createTransactionAndVerify(account, request, "key-1");
+    MvcResult result = performTransaction(
+        post("/api/account/{id}/transaction", account.getId())
+            .header("Idempotency-Key", "key-1")
+            .content(mapper.writeValueAsBytes(request))
+            .contentType(MediaType.APPLICATION_JSON)
+    );
+    status().isOk().match(result);
+
+    assertEquals(first, mapper.readValue(
+        result.getResponse().getContentAsByteArray(), CreateTransactionResponse.class
+    ));
+    assertEquals(1, getTransactions(account.getId()).size());
+    assertEquals(eur(10), getBalance(getAccount(account.getId()), EUR).getBalance());
+    // the same key is independent for another account
+    Account other = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    createTransactionAndVerify(other, request, "key-1");
+    assertEquals(1, getTransactions(other.getId()).size());
+  }
+
+  @Test
+  void testConditionalGetAccount() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    mockMvc.perform(get("/api/account/{id}", account.getId()))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+    mockMvc.perform(get("/api/account/{id}", account.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+    createTransactionAndVerify(account, new CreateTransactionRequest(
+        BigDecimal.TEN, "EUR", TransactionDirection.IN, "changes version"
+    ));
+    mockMvc.perform(get("/api/account/{id}", account.getId())
+            .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+  }
+
+  @Test
+  void testAsyncTransaction() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", TransactionDirection.IN, "async");
+
     MvcResult result = mockMvc
         .perform(
             post("/api/account/{id}/transaction", account.getId())
-                .content(mapper.writeValueAsBytes(transactionReq))
+                .param("mode", "async")
+                .content(mapper.writeValueAsBytes(request))
                 .contentType(MediaType.APPLICATION_JSON)
-        ).andExpect(status().isBadRequest()).andReturn();
+        ).andExpect(status().isAccepted()).andReturn();
+    AsyncTransactionStatus pending = mapper.readValue(
+        result.getResponse().getContentAsByteArray(), AsyncTransactionStatus.class
+    );
+    assertNotNull(pending.transactionId());
+    assertEquals(
+        "http://localhost/api/account/" + account.getId() + "/transaction/"
+            + pending.transactionId(),
+        result.getResponse().getHeader(HttpHeaders.LOCATION)
+    );
 
-    ErrorResponse error =
-        mapper.readValue(result.getResponse().getContentAsByteArray(), ErrorResponse.class);
-    assertEquals("insufficient funds", error.error());
+    AsyncTransactionStatus status = pending;
+    for (int i = 0; i < 100 && status.status() == AsyncTransactionStatus.Status.PENDING; i++) {
+      Thread.sleep(50);
+      MvcResult poll = mockMvc
+          .perform(get(result.getResponse().getHeader(HttpHeaders.LOCATION)))
+          .andExpect(status().isOk()).andReturn();
+      status = mapper.readValue(
+          poll.getResponse().getContentAsByteArray(), AsyncTransactionStatus.class
+      );
+    }
+    assertEquals(AsyncTransactionStatus.Status.POSTED, status.status());
+    assertEquals(eur(10), status.transaction().currentBalance());
+    assertEquals(pending.transactionId(), getTransactions(account.getId()).get(0).getId());
+    TransactionCreateEvent tcEvent =
+        mapper.readValue(readQueue().getBody(), TransactionCreateEvent.class);
+    assertEquals(pending.transactionId(), tcEvent.transactionId());
+    assertNotNull(readQueue());
+
+    mockMvc.perform(get("/api/account/{id}/transaction/{transactionId}",
+            UUID.randomUUID(), pending.transactionId()))
+        .andExpect(status().isNotFound());
   }
 
-  private List<Transaction> getTransactions(UUID id) throws Exception {
+  @Test
+  void testCreateTransactionBatch() throws Exception {
+    Account first = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    Account second = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    );
+    BatchTransactionRequest request = new BatchTransactionRequest(List.of(
+        batchItem(first, 10, TransactionDirection.IN, "b1"),
+        batchItem(second, 1, TransactionDirection.OUT, "b2"),
+        batchItem(first, 4, TransactionDirection.OUT, "b3"),
+        batchItem(second, 3, TransactionDirection.IN, "b4")
+    ));
+
+    MvcResult result = mockMvc
+        .perform(
+            post("/api/account/transactions/batch")
+                .content(mapper.writeValueAsBytes(request))
+                .contentType(MediaType.APPLICATION_JSON)
+        ).andExpect(status().isOk()).andReturn();
+
+    List<BatchTransactionResult> results = mapper.readValue(
+        result.getResponse().getContentAsByteArray(), BatchTransactionResponse.class
+    ).results();
+    assertEquals(eur(10), results.get(0).transaction().currentBalance());
+    assertEquals("insufficient funds", results.get(1).error());
+    assertEquals(eur(6), results.get(2).transaction().currentBalance());
+    assertEquals(eur(3), results.get(3).transaction().currentBalance());
+    assertEquals(eur(6), getBalance(getAccount(first.getId()), EUR).getBalance());
+    assertEquals(eur(3), getBalance(getAccount(second.getId()), EUR).getBalance());
+    assertEquals(List.of("b1", "b3"), descriptions(getTransactionPage(first.getId(), null, 10)));
+    assertEquals(List.of("b4"), descriptions(getTransactionPage(second.getId(), null, 10)));
+
+    TransactionCreateEvent tcEvent =
+        mapper.readValue(readQueue().getBody(), TransactionCreateEvent.class);
+    assertEquals(results.get(0).transaction().transactionId(), tcEvent.transactionId());
+    BalanceChangeEvent bcEvent = mapper.readValue(readQueue().getBody(), BalanceChangeEvent.class);
+    assertEquals(eur(10), bcEvent.newBalance());
+    assertEquals(1, bcEvent.version());
+    // every transaction of the batch gets the next version of its balance
+    assertNotNull(readQueue());
+    bcEvent = mapper.readValue(readQueue().getBody(), BalanceChangeEvent.class);
+    assertEquals(eur(6), bcEvent.newBalance());
+    assertEquals(2, bcEvent.version());
+    for (int i = 0; i < 2; i++) {
+      assertNotNull(readQueue());
+    }
+  }
+
+  @Test
+  void testSummary() throws Exception {
+    Account account = createAccountAndVerify(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR", "USD"))
+    );
+    createTransactionAndVerify(account, new CreateTransactionRequest(
+        BigDecimal.TEN, "EUR", TransactionDirection.IN, "s1"
+    ));
+    createTransactionAndVerify(account, new CreateTransactionRequest(
+        new BigDecimal(3), "EUR", TransactionDirection.OUT, "s2"
+    ));
+    mockMvc.perform(
+        post("/api/account/transactions/batch")
+            .content(mapper.writeValueAsBytes(new BatchTransactionRequest(List.of(
+                batchItem(account, 5, TransactionDirection.IN, "s3")
+            ))))
+            .contentType(MediaType.APPLICATION_JSON)
+    ).andExpect(status().isOk());
+    readQueue();
+    readQueue();
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
     MvcResult result = mockMvc
-        .perform(get("/api/account/{id}/transactions", id))
+        .perform(get("/api/account/{id}/summary", account.getId())
+            .param("from", today.minusDays(7).toString())
+            .param("to", today.toString()))
         .andExpect(status().isOk()).andReturn();
-    return mapper.readValue(result.getResponse().getContentAsByteArray(),
-        TypeFactory.defaultInstance().constructCollectionType(List.class, Transaction.class));
+
+    AccountSummary summary =
+        mapper.readValue(result.getResponse().getContentAsByteArray(), AccountSummary.class);
+    assertEquals(List.of(new DailyTurnover(today, EUR, eur(15), 2, eur(3), 1)), summary.days());
+    mockMvc.perform(get("/api/account/{id}/summary", account.getId())
+            .param("from", today.plusDays(1).toString())
+            .param("to", today.plusDays(7).toString()))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"days\":[]}"));
+  }
+
+  private BatchTransactionItem batchItem(Account account, int amount,
+                                         TransactionDirection direction, String description) {
+    return new BatchTransactionItem(
+        account.getId(), new BigDecimal(amount), "EUR", direction, description
+    );
+  }
+
+  private List<Transaction> getTransactions(UUID id) throws Exception {
+    TransactionPage page = getTransactionPage(id, null, 100);
+    assertNull(page.nextCursor());
+    return page.transactions();
+  }
+
+  private TransactionPage getTransactionPage(UUID id, String cursor, int limit) throws Exception {
+    MockHttpServletRequestBuilder request = get("/api/account/{id}/transactions", id)
+        .param("limit", String.valueOf(limit));
+    if (cursor != null) {
+      request.param("cursor", cursor);
+    }
+    MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+    return mapper.readValue(result.getResponse().getContentAsByteArray(), TransactionPage.class);
+  }
+
+  private List<String> descriptions(TransactionPage page) {
+    return page.transactions().stream().map(Transaction::getDescription).toList();
   }
 
   private Account getAccount(UUID id) throws Exception {
@@ -180,28 +452,40 @@ public class AccountTest {
     return mapper.readValue(result.getResponse().getContentAsByteArray(), Account.class);
   }
 
-  private AccountBalance getBalance(Account account, String currency) {
-    return account.getAccountBalances().stream().filter(it -> it.getCurrency().equals(currency))
+  private AccountBalance getBalance(Account account, Currency currency) {
+    return account.getAccountBalances().stream().filter(it -> it.getCurrency() == currency)
         .findFirst().orElseThrow();
   }
 
+  private static Money eur(int amount) {
+    return Money.of(BigDecimal.valueOf(amount), EUR);
+  }
+
   private CreateTransactionResponse createTransactionAndVerify(Account account,
                                                                CreateTransactionRequest request)
       throws Exception {
-    MvcResult result = mockMvc
-        .perform(
-            post("/api/account/{id}/transaction", account.getId())
-                .content(mapper.writeValueAsBytes(request))
-                .contentType(MediaType.APPLICATION_JSON)
-        ).andExpect(status().isOk()).andReturn();
+    return createTransactionAndVerify(account, request, null);
+  }
+
+  private CreateTransactionResponse createTransactionAndVerify(
+      Account account, CreateTransactionRequest request, String idempotencyKey
+  ) throws Exception {
+    MockHttpServletRequestBuilder post = post("/api/account/{id}/transaction", account.getId())
+        .content(mapper.writeValueAsBytes(request))
+        .contentType(MediaType.APPLICATION_JSON);
+    if (idempotencyKey != null) {
+      post.header("Idempotency-Key", idempotencyKey);
+    }
+    MvcResult result = performTransaction(post);
+    status().isOk().match(result);
     CreateTransactionResponse createTransactionResponse =
         mapper.readValue(result.getResponse().getContentAsByteArray(),
             CreateTransactionResponse.class);
 
     assertNotNull(createTransactionResponse.transactionId());
     assertEquals(account.getId(), createTransactionResponse.accountId());
-    assertEquals(request.amount(), createTransactionResponse.amount());
-    assertEquals(request.currency(), createTransactionResponse.currency());
+    assertEquals(0, request.amount().compareTo(createTransactionResponse.amount().toBigDecimal()));
+    assertEquals(request.currency(), createTransactionResponse.currency().name());
     assertEquals(request.direction(), createTransactionResponse.direction());
     assertEquals(request.description(), createTransactionResponse.description());
 
@@ -222,6 +506,18 @@ public class AccountTest {
     return createTransactionResponse;
   }
 
+  /**
+   * Transactions are created asynchronously when they wait for a group commit, the result is
+   * dispatched once they complete.
+   */
+  private MvcResult performTransaction(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult result = mockMvc.perform(request).andReturn();
+    if (result.getRequest().isAsyncStarted()) {
+      return mockMvc.perform(asyncDispatch(result)).andReturn();
+    }
+    return result;
+  }
+
   private Account createAccountAndVerify(CreateAccountRequest accountRequest) throws Exception {
     MvcResult result = mockMvc
         .perform(
@@ -238,8 +534,8 @@ public class AccountTest {
     assertEquals(accountRequest.country(), account.getCountry());
     assertEquals(accountRequest.currencies().size(), account.getAccountBalances().size());
     for (AccountBalance balance : account.getAccountBalances()) {
-      assertTrue(accountRequest.currencies().contains(balance.getCurrency()));
-      assertEquals(BigDecimal.ZERO, balance.getBalance());
+      assertTrue(accountRequest.currencies().contains(balance.getCurrency().name()));
+      assertEquals(Money.zero(balance.getCurrency()), balance.getBalance());
     }
     AccountCreateEvent event = mapper.readValue(readQueue().getBody(), AccountCreateEvent.class);
     assertEquals(account.getId(), event.accountId());
@@ -0,0 +1,217 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ee.metsmarko.tuum.account.ledger.BalanceSnapshotter;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Transactions in ledger mode, where credits append deltas without locking and debits lock the
+ * balance snapshot, against a real database.
+ */
+@Testcontainers
+@SpringBootTest(properties = "tuum.account.balance-mode=ledger")
+@ContextConfiguration(initializers = {LedgerAccountTest.Initializer.class})
+@Import(RabbitMqTestConf.class)
+public class LedgerAccountTest {
+  private static final int THREADS = 16;
+
+  @Autowired
+  private AccountService accountService;
+  @Autowired
+  private BalanceSnapshotter balanceSnapshotter;
+  private final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+  private static final PostgreSQLContainer<?> pgContainer = new PostgreSQLContainer<>("postgres:14")
+      .withDatabaseName("tuum-db")
+      .withUsername("tuum-user")
+      .withPassword("tuum-pw");
+
+  private static final RabbitMQContainer mqContainer = new RabbitMQContainer("rabbitmq:3.10.6");
+
+  static class Initializer
+      implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+      TestPropertyValues.of(
+          "spring.datasource.url=" + pgContainer.getJdbcUrl(),
+          "spring.datasource.username=" + pgContainer.getUsername(),
+          "spring.datasource.password=" + pgContainer.getPassword(),
+          "spring.rabbitmq.host=localhost",
+          "spring.rabbitmq.port=" + mqContainer.getMappedPort(5672),
+          "spring.rabbitmq.username=guest",
+          "spring.rabbitmq.password=guest"
+      ).applyTo(configurableApplicationContext.getEnvironment());
+    }
+  }
+
+  @BeforeAll
+  static void beforeAll() {
+    pgContainer.start();
+    mqContainer.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testCreditAndDebit() throws Exception {
+    UUID accountId = createAccount();
+
+    CreateTransactionResponse credit = transaction(accountId, 10, IN);
+    CreateTransactionResponse debit = transaction(accountId, 4, OUT);
+
+    // a credit sees the balance at the time of its statement, a debit holds the lock of it
+    assertEquals(eur(10), credit.currentBalance());
+    assertEquals(eur(6), debit.currentBalance());
+    assertEquals(eur(6), balance(accountId));
+    balanceSnapshotter.snapshot();
+    assertEquals(eur(6), balance(accountId));
+    assertEquals(2, accountService.getAccountById(accountId).orElseThrow().getVersion());
+  }
+
+  @Test
+  void testInsufficientFunds() throws Exception {
+    UUID accountId = createAccount();
+    transaction(accountId, 10, IN);
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class, () -> transaction(accountId, 11, OUT)
+    );
+
+    assertEquals("insufficient funds", ex.getMessage());
+    assertEquals(eur(10), balance(accountId));
+  }
+
+  @Test
+  void testConcurrentDebitsDoNotOverdraw() throws Exception {
+    UUID accountId = createAccount();
+    List<Callable<CreateTransactionResponse>> credits = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      credits.add(() -> transaction(accountId, 10, IN));
+    }
+    assertEquals(0, failures(credits));
+    List<Callable<CreateTransactionResponse>> debits = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      debits.add(() -> transaction(accountId, 10, OUT));
+    }
+
+    assertEquals(15, failures(debits));
+    assertEquals(Money.zero(EUR), balance(accountId));
+    // credits are spread over turnover slots, the summary sums them
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    assertEquals(
+        List.of(new DailyTurnover(today, EUR, eur(100), 10, eur(100), 10)),
+        accountService.getSummary(accountId, today, today).days()
+    );
+  }
+
+  @Test
+  void testFoldDuringDebits() throws Exception {
+    UUID accountId = createAccount();
+    transaction(accountId, 1000, IN);
+    AtomicBoolean posting = new AtomicBoolean(true);
+    Future<?> folding = executor.submit(() -> {
+      while (posting.get()) {
+        balanceSnapshotter.snapshot();
+      }
+    });
+    List<Callable<CreateTransactionResponse>> transactions = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      transactions.add(() -> transaction(accountId, 7, OUT));
+      transactions.add(() -> transaction(accountId, 3, IN));
+    }
+
+    try {
+      assertEquals(0, failures(transactions));
+    } finally {
+      posting.set(false);
+    }
+    folding.get();
+    balanceSnapshotter.snapshot();
+
+    assertEquals(eur(1000 - 100 * 7 + 100 * 3), balance(accountId));
+    assertEquals(201, accountService.getAccountById(accountId).orElseThrow().getVersion());
+  }
+
+  private UUID createAccount() throws Exception {
+    return accountService.createAccount(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    ).getId();
+  }
+
+  private CreateTransactionResponse transaction(UUID accountId, int amount,
+                                                TransactionDirection direction)
+      throws Exception {
+    return accountService.createTransaction(accountId, new CreateTransactionRequest(
+        BigDecimal.valueOf(amount), "EUR", direction, "ledger " + direction
+    ));
+  }
+
+  /**
+   * Runs the transactions concurrently and returns the number rejected for insufficient funds.
+   */
+  private int failures(List<Callable<CreateTransactionResponse>> transactions)
+      throws InterruptedException {
+    int failures = 0;
+    for (Future<CreateTransactionResponse> result : executor.invokeAll(transactions)) {
+      try {
+        result.get();
+      } catch (ExecutionException e) {
+        if (!(e.getCause() instanceof TuumInvalidInputException)) {
+          throw new IllegalStateException(e.getCause());
+        }
+        assertEquals("insufficient funds", e.getCause().getMessage());
+        failures++;
+      }
+    }
+    return failures;
+  }
+
+  private Money balance(UUID accountId) {
+    return accountService.getAccountById(accountId).orElseThrow().getAccountBalances().stream()
+        .filter(b -> b.getCurrency() == EUR)
+        .findFirst().orElseThrow().getBalance();
+  }
+
+  private static Money eur(int amount) {
+    return Money.of(BigDecimal.valueOf(amount), EUR);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    pgContainer.close();
+    mqContainer.close();
+  }
+}
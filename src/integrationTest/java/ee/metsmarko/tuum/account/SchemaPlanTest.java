@@ -0,0 +1,150 @@
+package ee.metsmarko.tuum.account;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Plans and insert rate of the balance and history statements before and after the
+ * {@code V6__account_balance_keys} migration. The same data is loaded into a schema migrated to
+ * V5 and one migrated to V6, the plans and timings of both are written to
+ * {@code build/reports/schema/V6.txt}.
+ */
+public class SchemaPlanTest {
+  private static final int ACCOUNTS = 20000;
+  private static final int TRANSACTIONS_PER_ACCOUNT = 20;
+  private static final int INSERTED_TRANSACTIONS = 50000;
+  private static final String LOCK_BALANCE = "select account_id, currency, slot, balance"
+      + " from account_balance where account_id = ? and currency = ? and slot = 0 for update";
+  private static final String HISTORY =
+      "select id, account_id, amount, currency, direction, description, created_at"
+          + " from transaction where account_id = ? order by created_at, id limit 100";
+  private static final PostgreSQLContainer<?> pgContainer = new PostgreSQLContainer<>("postgres:14")
+      .withDatabaseName("tuum-db")
+      .withUsername("tuum-user")
+      .withPassword("tuum-pw");
+
+  @BeforeAll
+  static void beforeAll() {
+    pgContainer.start();
+  }
+
+  @AfterAll
+  static void afterAll() {
+    pgContainer.stop();
+  }
+
+  @Test
+  void testBalanceAndHistoryUseKeys() throws SQLException, IOException {
+    String before = measure("before", "5");
+    String after = measure("after", "6");
+    Path report = Path.of("build", "reports", "schema", "V6.txt");
+    Files.createDirectories(report.getParent());
+    Files.writeString(report, before + after);
+
+    assertTrue(after.contains("account_balance_pkey"), after);
+    assertTrue(after.contains("idx_transaction_account_id_created_at_id"), after);
+  }
+
+  /**
+   * Migrates a schema of its own to the target version, loads it and returns the plans.
+   */
+  private static String measure(String schema, String target) throws SQLException {
+    Flyway.configure()
+        .dataSource(pgContainer.getJdbcUrl(), pgContainer.getUsername(), pgContainer.getPassword())
+        .schemas(schema)
+        .target(target)
+        .load()
+        .migrate();
+    try (Connection connection = DriverManager.getConnection(
+        pgContainer.getJdbcUrl(), pgContainer.getUsername(), pgContainer.getPassword()
+    )) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("set search_path to " + schema);
+      }
+      UUID accountId = load(connection);
+      StringBuilder plans = new StringBuilder();
+      plans.append("== ").append(schema).append(", V").append(target).append('\n');
+      plans.append(explain(connection, LOCK_BALANCE, accountId, "EUR"));
+      plans.append(explain(connection, HISTORY, accountId, null));
+      plans.append(insertRate(connection, accountId)).append("\n\n");
+      return plans.toString();
+    }
+  }
+
+  private static UUID load(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("insert into account (customer_id, country)"
+          + " select gen_random_uuid(), 'EST' from generate_series(1, " + ACCOUNTS + ")");
+      statement.execute("insert into account_balance (account_id, currency, balance)"
+          + " select id, c, 100 from account, unnest(array['EUR', 'USD']) c");
+      statement.execute("insert into transaction"
+          + " (account_id, amount, currency, direction, description, created_at)"
+          + " select id, 1, 'EUR', 'IN', 'load', now() - i * interval '1 hour'"
+          + " from account, generate_series(1, " + TRANSACTIONS_PER_ACCOUNT + ") i");
+      statement.execute("analyze");
+      try (ResultSet rs = statement.executeQuery("select id from account limit 1")) {
+        rs.next();
+        return rs.getObject(1, UUID.class);
+      }
+    }
+  }
+
+  private static String explain(Connection connection, String sql, UUID accountId,
+                                String currency) throws SQLException {
+    StringBuilder plan = new StringBuilder(sql).append('\n');
+    connection.setAutoCommit(false);
+    try (PreparedStatement statement =
+             connection.prepareStatement("explain (analyze, buffers) " + sql)) {
+      statement.setObject(1, accountId);
+      if (currency != null) {
+        statement.setString(2, currency);
+      }
+      try (ResultSet rs = statement.executeQuery()) {
+        while (rs.next()) {
+          plan.append("  ").append(rs.getString(1)).append('\n');
+        }
+      }
+    } finally {
+      connection.rollback();
+      connection.setAutoCommit(true);
+    }
+    return plan.append('\n').toString();
+  }
+
+  /**
+   * Inserts transactions of one account in a transaction that is rolled back.
+   */
+  private static String insertRate(Connection connection, UUID accountId) throws SQLException {
+    connection.setAutoCommit(false);
+    try (PreparedStatement statement = connection.prepareStatement(
+        "insert into transaction (account_id, amount, currency, direction, description)"
+            + " select ?, 1, 'EUR', 'IN', 'insert rate ' || i from generate_series(1, ?) i"
+    )) {
+      statement.setObject(1, accountId);
+      statement.setInt(2, INSERTED_TRANSACTIONS);
+      long start = System.nanoTime();
+      statement.executeUpdate();
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      return "inserted " + INSERTED_TRANSACTIONS + " transactions in " + millis + " ms, "
+          + (INSERTED_TRANSACTIONS * 1000L / Math.max(millis, 1)) + " per second";
+    } finally {
+      connection.rollback();
+      connection.setAutoCommit(true);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Transactions of a balance spread over several slots against a real database.
+ */
+@Testcontainers
+@SpringBootTest(properties = "tuum.account.balance-slots=4")
+@ContextConfiguration(initializers = {SlotAccountTest.Initializer.class})
+@Import(RabbitMqTestConf.class)
+public class SlotAccountTest {
+  @Autowired
+  private AccountService accountService;
+  private static final PostgreSQLContainer<?> pgContainer = new PostgreSQLContainer<>("postgres:14")
+      .withDatabaseName("tuum-db")
+      .withUsername("tuum-user")
+      .withPassword("tuum-pw");
+
+  private static final RabbitMQContainer mqContainer = new RabbitMQContainer("rabbitmq:3.10.6");
+
+  static class Initializer
+      implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    public void initialize(ConfigurableApplicationContext configurableApplicationContext) {
+      TestPropertyValues.of(
+          "spring.datasource.url=" + pgContainer.getJdbcUrl(),
+          "spring.datasource.username=" + pgContainer.getUsername(),
+          "spring.datasource.password=" + pgContainer.getPassword(),
+          "spring.rabbitmq.host=localhost",
+          "spring.rabbitmq.port=" + mqContainer.getMappedPort(5672),
+          "spring.rabbitmq.username=guest",
+          "spring.rabbitmq.password=guest"
+      ).applyTo(configurableApplicationContext.getEnvironment());
+    }
+  }
+
+  @BeforeAll
+  static void beforeAll() {
+    pgContainer.start();
+    mqContainer.start();
+  }
+
+  @Test
+  void testCurrentBalanceIsSumOfSlots() throws Exception {
+    UUID accountId = accountService.createAccount(
+        new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR"))
+    ).getId();
+
+    // credits go to random slots, every response has the sum of all of them
+    int balance = 0;
+    for (int i = 1; i <= 10; i++) {
+      balance += i;
+      assertEquals(eur(balance), transaction(accountId, i, IN).currentBalance());
+    }
+    CreateTransactionResponse debit = transaction(accountId, 3, OUT);
+
+    assertEquals(eur(balance - 3), debit.currentBalance());
+    assertEquals(
+        eur(balance - 3),
+        accountService.getTransaction(accountId, debit.transactionId())
+            .orElseThrow().currentBalance()
+    );
+  }
+
+  private CreateTransactionResponse transaction(UUID accountId, int amount,
+                                                TransactionDirection direction)
+      throws Exception {
+    return accountService.createTransaction(accountId, new CreateTransactionRequest(
+        BigDecimal.valueOf(amount), "EUR", direction, "slot " + direction
+    ));
+  }
+
+  private static Money eur(int amount) {
+    return Money.of(BigDecimal.valueOf(amount), EUR);
+  }
+
+  @AfterAll
+  static void afterAll() {
+    pgContainer.close();
+    mqContainer.close();
+  }
+}
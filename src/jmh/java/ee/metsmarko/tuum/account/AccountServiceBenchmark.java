@@ -0,0 +1,123 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.event.AccountEventPublisher;
+import ee.metsmarko.tuum.account.event.InMemoryOutboxMapper;
+import ee.metsmarko.tuum.account.event.JsonEventCodec;
+import ee.metsmarko.tuum.account.event.OutboxEventSink;
+import ee.metsmarko.tuum.exception.TuumException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures AccountService without a database or a broker, so that the numbers reflect the cost of
+ * validation, mapping, balance lookups and event serialization only.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountServiceBenchmark {
+  private final UUID accountId = UUID.randomUUID();
+  private final CreateTransactionRequest credit =
+      new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "benchmark credit");
+  private final CreateTransactionRequest debit =
+      new CreateTransactionRequest(BigDecimal.ONE, "EUR", OUT, "benchmark debit");
+  private final CreateAccountRequest createAccount =
+      new CreateAccountRequest(UUID.randomUUID(), "EE", Set.of("EUR", "USD", "SEK", "GBP"));
+
+  @Param({"100"})
+  private int historySize;
+
+  @Param({"100"})
+  private int batchSize;
+
+  private AccountService accountService;
+  private BatchTransactionRequest batch;
+
+  @Setup
+  public void setUp() {
+    List<Transaction> history = new ArrayList<>(historySize);
+    for (int i = 0; i < historySize; i++) {
+      history.add(new Transaction(
+          UUID.randomUUID(), accountId, new Money(1000, Currency.EUR), Currency.EUR,
+          i % 2 == 0 ? IN : OUT, "tx " + i, OffsetDateTime.now()
+      ));
+    }
+    AccountMapper accountMapper = new InMemoryAccountMapper(
+        accountId,
+        Map.of(
+            Currency.EUR, Money.of(new BigDecimal("1000000000000"), Currency.EUR),
+            Currency.USD, Money.zero(Currency.USD), Currency.SEK, Money.zero(Currency.SEK),
+            Currency.GBP, Money.zero(Currency.GBP)
+        ),
+        history
+    );
+    AccountEventPublisher eventPublisher = new AccountEventPublisher(
+        new OutboxEventSink(new InMemoryOutboxMapper()), new JsonEventCodec(new ObjectMapper()),
+        new SimpleMeterRegistry()
+    );
+    AccountCache accountCache = new AccountCache(
+        accountMapper, new SimpleMeterRegistry(), true, 10, 100, Duration.ofMinutes(1)
+    );
+    accountService = new AccountService(
+        accountMapper, new RowBalanceStore(accountMapper, 1), accountCache, eventPublisher
+    );
+    List<BatchTransactionItem> items = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      items.add(new BatchTransactionItem(
+          accountId, BigDecimal.ONE, "EUR", i % 2 == 0 ? IN : OUT, "batch " + i
+      ));
+    }
+    batch = new BatchTransactionRequest(items);
+  }
+
+  @Benchmark
+  public CreateTransactionResponse createCreditTransaction() throws TuumException {
+    return accountService.createTransaction(accountId, credit);
+  }
+
+  @Benchmark
+  public CreateTransactionResponse createDebitTransaction() throws TuumException {
+    return accountService.createTransaction(accountId, debit);
+  }
+
+  @Benchmark
+  public BatchTransactionResponse createTransactionBatch() throws TuumException {
+    return accountService.createTransactions(batch);
+  }
+
+  @Benchmark
+  public Account createAccount() throws TuumException {
+    return accountService.createAccount(createAccount);
+  }
+
+  @Benchmark
+  public TransactionPage getTransactionsByAccountId() throws TuumException {
+    return accountService.getTransactionsByAccountId(accountId, null, historySize);
+  }
+}
@@ -0,0 +1,148 @@
+package ee.metsmarko.tuum.account;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * AccountMapper stand-in that keeps a single account in memory. Every read returns freshly built
+ * objects, the same way MyBatis maps a result set, so mapping allocations stay in the measurement.
+ */
+class InMemoryAccountMapper implements AccountMapper {
+  private final UUID accountId;
+  private final UUID customerId = UUID.randomUUID();
+  private final Map<Currency, Money> balances = new ConcurrentHashMap<>();
+  private final Map<Currency, Long> versions = new ConcurrentHashMap<>();
+  private final List<Transaction> transactions;
+
+  InMemoryAccountMapper(UUID accountId, Map<Currency, Money> balances,
+                        List<Transaction> transactions) {
+    this.accountId = accountId;
+    this.balances.putAll(balances);
+    this.transactions = transactions;
+  }
+
+  @Override
+  public void createAccount(Account account) {
+    // nothing to store, the benchmarks never read created accounts back
+  }
+
+  @Override
+  public void createAccountBalance(Account accountBalance) {
+    // nothing to store, the benchmarks never read created accounts back
+  }
+
+  @Override
+  public Account getAccountById(UUID id) {
+    if (!accountId.equals(id)) {
+      return null;
+    }
+    List<AccountBalance> accountBalances = new ArrayList<>(balances.size());
+    balances.forEach((currency, balance) -> accountBalances.add(
+        new AccountBalance(currency, balance)
+    ));
+    return new Account(accountId, customerId, "EE", accountBalances);
+  }
+
+  @Override
+  public PostedTransaction credit(Transaction transaction, String idempotencyKey, int slot,
+                                  boolean singleSlot) {
+    Money balance = balances.computeIfPresent(
+        transaction.getCurrency(), (c, current) -> current.plus(transaction.getAmount())
+    );
+    return balance == null ? null : new PostedTransaction(
+        UUID.randomUUID(), balance, versions.merge(transaction.getCurrency(), 1L, Long::sum)
+    );
+  }
+
+  @Override
+  public PostedTransaction debit(Transaction transaction, String idempotencyKey, int slot,
+                                 boolean singleSlot) {
+    Money current = balances.get(transaction.getCurrency());
+    if (current == null || current.compareTo(transaction.getAmount()) < 0) {
+      return null;
+    }
+    Money balance = current.minus(transaction.getAmount());
+    balances.put(transaction.getCurrency(), balance);
+    return new PostedTransaction(
+        UUID.randomUUID(), balance, versions.merge(transaction.getCurrency(), 1L, Long::sum)
+    );
+  }
+
+  @Override
+  public void insertTransaction(Transaction transaction, String idempotencyKey,
+                                Money balanceAfter) {
+    // nothing to store, the benchmarks read the prepared history only
+  }
+
+  @Override
+  public CreateTransactionResponse findTransactionByIdempotencyKey(UUID accountId,
+                                                                   String idempotencyKey) {
+    return null;
+  }
+
+  @Override
+  public CreateTransactionResponse findTransactionById(UUID accountId, UUID transactionId) {
+    return null;
+  }
+
+  @Override
+  public void createBalanceSlots(Collection<BalanceKey> keys, int slots) {
+    // a balance is a single value here
+  }
+
+  @Override
+  public List<LockedBalance> lockBalances(Collection<BalanceKey> keys) {
+    List<LockedBalance> locked = new ArrayList<>(keys.size());
+    for (BalanceKey key : keys) {
+      Money balance = accountId.equals(key.accountId()) ? balances.get(key.currency()) : null;
+      if (balance != null) {
+        locked.add(new LockedBalance(
+            key.accountId(), key.currency(), balance, versions.getOrDefault(key.currency(), 0L)
+        ));
+      }
+    }
+    return locked;
+  }
+
+  @Override
+  public void updateBalances(Collection<BalanceUpdate> updated) {
+    updated.forEach(b -> {
+      balances.put(b.currency(), b.balance());
+      versions.merge(b.currency(), (long) b.transactions(), Long::sum);
+    });
+  }
+
+  @Override
+  public void insertTransactions(List<Transaction> transactions) {
+    // nothing to store, the benchmarks read the prepared history only
+  }
+
+  @Override
+  public List<Transaction> getTransactionsByAccountId(UUID accountId, TransactionCursor after,
+                                                        int limit) {
+    List<Transaction> result = new ArrayList<>(Math.min(limit, transactions.size()));
+    for (Transaction t : transactions.subList(0, Math.min(limit, transactions.size()))) {
+      result.add(new Transaction(
+          t.getId(), t.getAccountId(), t.getAmount(), t.getCurrency(), t.getDirection(),
+          t.getDescription(), t.getCreatedAt()
+      ));
+    }
+    return result;
+  }
+
+  @Override
+  public Cursor<Transaction> streamTransactionsByAccountId(UUID accountId) {
+    throw new UnsupportedOperationException("not benchmarked");
+  }
+
+  @Override
+  public List<DailyTurnover> getTurnover(UUID accountId, LocalDate from, LocalDate to) {
+    throw new UnsupportedOperationException("not benchmarked");
+  }
+}
@@ -0,0 +1,85 @@
+package ee.metsmarko.tuum.account;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares BigDecimal amounts, as they were used before {@link Money}, with minor unit amounts on
+ * the hot path of a batch: validating amounts, applying them to a running balance and writing the
+ * balance to JSON. Requested amounts are BigDecimals in both cases, as they come from the JSON
+ * request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoneyBenchmark {
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Param({"100"})
+  private int batchSize;
+
+  private BigDecimal[] amounts;
+  private BigDecimal bigDecimalBalance;
+  private Money moneyBalance;
+
+  @Setup
+  public void setUp() {
+    amounts = new BigDecimal[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      amounts[i] = BigDecimal.valueOf(100 + i, 2);
+    }
+    bigDecimalBalance = new BigDecimal("1234567.89");
+    moneyBalance = Money.of(bigDecimalBalance, Currency.EUR);
+  }
+
+  @Benchmark
+  public BigDecimal postBatchWithBigDecimal() {
+    BigDecimal balance = bigDecimalBalance;
+    for (BigDecimal amount : amounts) {
+      if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        throw new IllegalStateException("invalid amount");
+      }
+      balance = balance.add(amount);
+    }
+    return balance;
+  }
+
+  @Benchmark
+  public Money postBatchWithMoney() {
+    Money balance = moneyBalance;
+    for (BigDecimal amount : amounts) {
+      Money money = Money.of(amount, Currency.EUR);
+      if (!money.isPositive()) {
+        throw new IllegalStateException("invalid amount");
+      }
+      balance = balance.plus(money);
+    }
+    return balance;
+  }
+
+  @Benchmark
+  public byte[] writeBigDecimal() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(bigDecimalBalance);
+  }
+
+  @Benchmark
+  public byte[] writeMoney() throws JsonProcessingException {
+    return mapper.writeValueAsBytes(moneyBalance);
+  }
+}
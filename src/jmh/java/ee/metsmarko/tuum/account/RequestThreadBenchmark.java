@@ -0,0 +1,173 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.event.AccountEventPublisher;
+import ee.metsmarko.tuum.account.event.InMemoryOutboxMapper;
+import ee.metsmarko.tuum.account.event.JsonEventCodec;
+import ee.metsmarko.tuum.account.event.OutboxEventSink;
+import ee.metsmarko.tuum.exception.TuumException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares blocking and asynchronous transaction responses on a hot account when request threads
+ * are the bottleneck. A fixed pool stands in for the servlet container threads and every database
+ * transaction takes {@code commitMillis}. One operation serves {@code requests} concurrent
+ * requests. Only group commit releases request threads, a transaction posted on its own still
+ * holds its thread for the database round trip, and the group commit writers block on JDBC either
+ * way. This is not a comparison with a reactive stack, the service has no WebFlux or R2DBC profile
+ * and none was benchmarked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestThreadBenchmark {
+  private final UUID accountId = UUID.randomUUID();
+  private final CreateTransactionRequest credit =
+      new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "benchmark credit");
+
+  @Param({"1000"})
+  private int requests;
+
+  @Param({"16"})
+  private int requestThreads;
+
+  @Param({"1"})
+  private int commitMillis;
+
+  private AccountService accountService;
+  private GroupCommitEngine groupCommitEngine;
+  private ExecutorService requestPool;
+
+  @Setup
+  public void setUp() {
+    AccountMapper accountMapper = new InMemoryAccountMapper(
+        accountId, Map.of(Currency.EUR, Money.zero(Currency.EUR)), List.of()
+    );
+    AccountEventPublisher eventPublisher = new AccountEventPublisher(
+        new OutboxEventSink(new InMemoryOutboxMapper()), new JsonEventCodec(new ObjectMapper()),
+        new SimpleMeterRegistry()
+    );
+    AccountCache accountCache = new AccountCache(
+        accountMapper, new SimpleMeterRegistry(), true, 10, 100, Duration.ofMinutes(1)
+    );
+    accountService = new SlowAccountService(accountMapper, accountCache, eventPublisher);
+    groupCommitEngine =
+        new GroupCommitEngine(accountService, new SimpleMeterRegistry(), 256, 8, 500, 10000);
+    requestPool = Executors.newFixedThreadPool(requestThreads);
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    requestPool.shutdown();
+    groupCommitEngine.destroy();
+  }
+
+  /**
+   * Every request holds its thread for a database transaction of its own.
+   */
+  @Benchmark
+  public int blocking() {
+    return serve(() -> CompletableFuture.completedFuture(
+        accountService.createTransaction(accountId, credit)
+    ));
+  }
+
+  /**
+   * Requests share group commits, but hold their thread until the commit completes.
+   */
+  @Benchmark
+  public int groupCommitBlocking() {
+    return serve(() -> CompletableFuture.completedFuture(
+        groupCommitEngine.createTransaction(accountId, credit)
+    ));
+  }
+
+  /**
+   * Requests share group commits and release their thread right after queueing the transaction,
+   * the response is completed by a writer thread.
+   */
+  @Benchmark
+  public int groupCommitAsyncResponse() {
+    return serve(() -> groupCommitEngine.submit(accountId, credit));
+  }
+
+  private int serve(Request request) {
+    List<CompletableFuture<CreateTransactionResponse>> responses = new ArrayList<>(requests);
+    for (int i = 0; i < requests; i++) {
+      responses.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          return request.handle();
+        } catch (TuumException e) {
+          throw new IllegalStateException(e);
+        }
+      }, requestPool).thenCompose(response -> response));
+    }
+    CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+    return responses.size();
+  }
+
+  @FunctionalInterface
+  private interface Request {
+    CompletableFuture<CreateTransactionResponse> handle() throws TuumException;
+  }
+
+  /**
+   * Adds a fixed database round trip to every transaction.
+   */
+  private final class SlowAccountService extends AccountService {
+    SlowAccountService(AccountMapper accountMapper, AccountCache accountCache,
+                       AccountEventPublisher eventPublisher) {
+      super(accountMapper, new RowBalanceStore(accountMapper, 1), accountCache, eventPublisher);
+    }
+
+    @Override
+    public CreateTransactionResponse createTransaction(
+        UUID accountId, CreateTransactionRequest createTransactionRequest, String idempotencyKey
+    ) throws TuumException {
+      commit();
+      return super.createTransaction(accountId, createTransactionRequest, idempotencyKey);
+    }
+
+    @Override
+    public BatchTransactionResponse createTransactions(BatchTransactionRequest request)
+        throws TuumException {
+      commit();
+      return super.createTransactions(request);
+    }
+
+    private void commit() {
+      try {
+        Thread.sleep(commitMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
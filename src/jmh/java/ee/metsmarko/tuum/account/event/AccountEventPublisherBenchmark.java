@@ -0,0 +1,83 @@
+package ee.metsmarko.tuum.account.event;
+
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.AccountBalance;
+import ee.metsmarko.tuum.account.CreateTransactionResponse;
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures event creation, serialization and outbox hand-off done by AccountEventPublisher, in
+ * both event formats.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountEventPublisherBenchmark {
+  @Param({"json", "binary"})
+  private String format;
+
+  private final InMemoryOutboxMapper outboxMapper = new InMemoryOutboxMapper();
+  private AccountEventPublisher publisher;
+  private final Account account = new Account(
+      UUID.randomUUID(), UUID.randomUUID(), "EE",
+      List.of(new AccountBalance(Currency.EUR, Money.zero(Currency.EUR)))
+  );
+  private final Transaction transaction = new Transaction(
+      UUID.randomUUID(), account.getId(), new Money(1234, Currency.EUR), Currency.EUR, IN,
+      "benchmark", null
+  );
+  private final CreateTransactionResponse response = new CreateTransactionResponse(
+      transaction.getId(), account.getId(), transaction.getAmount(), Currency.EUR, IN,
+      "benchmark", new Money(123456, Currency.EUR)
+  );
+
+  @Setup
+  public void setUp() {
+    EventCodec codec =
+        format.equals("binary") ? new BinaryEventCodec() : new JsonEventCodec(new ObjectMapper());
+    publisher = new AccountEventPublisher(
+        new OutboxEventSink(outboxMapper), codec, new SimpleMeterRegistry()
+    );
+  }
+
+  @Benchmark
+  public Object accountCreated() {
+    publisher.accountCreated(account);
+    return outboxMapper.getLastInserted();
+  }
+
+  @Benchmark
+  public Object transactionCreated() {
+    publisher.transactionCreated(transaction);
+    return outboxMapper.getLastInserted();
+  }
+
+  @Benchmark
+  public Object balanceChanged() {
+    publisher.balanceChanged(response, 1);
+    return outboxMapper.getLastInserted();
+  }
+}
@@ -0,0 +1,39 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.util.List;
+
+/**
+ * OutboxMapper stand-in. The last inserted events are kept so that the JIT can not eliminate
+ * serialization, {@link #lockNextEvents} always returns the same prepared batch.
+ */
+public class InMemoryOutboxMapper implements OutboxMapper {
+  private final List<OutboxEvent> batch;
+  private volatile List<EventMessage> lastInserted;
+
+  public InMemoryOutboxMapper() {
+    this(List.of());
+  }
+
+  public InMemoryOutboxMapper(List<OutboxEvent> batch) {
+    this.batch = batch;
+  }
+
+  @Override
+  public void insertEvents(List<EventMessage> events) {
+    lastInserted = events;
+  }
+
+  @Override
+  public List<OutboxEvent> lockNextEvents(int limit) {
+    return batch;
+  }
+
+  @Override
+  public void deleteEvents(List<Long> ids) {
+    // the same batch is relayed on every invocation
+  }
+
+  public List<EventMessage> getLastInserted() {
+    return lastInserted;
+  }
+}
@@ -0,0 +1,61 @@
+package ee.metsmarko.tuum.account.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Measures the relay overhead of publishing one outbox batch and awaiting its confirms.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OutboxRelayBenchmark {
+  @Param({"500"})
+  private int batchSize;
+
+  private final NoOpRabbitTemplate template = new NoOpRabbitTemplate();
+  private OutboxRelay relay;
+
+  @Setup
+  public void setUp() {
+    List<OutboxEvent> batch = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      batch.add(new OutboxEvent(
+          i, "account.transaction.create", "application/json", new byte[200]
+      ));
+    }
+    // a batch smaller than the configured size makes relay() return after one batch
+    ConfirmedPublisher publisher = new ConfirmedPublisher(
+        new TopicExchange("account-service"), Duration.ofSeconds(1), new SimpleMeterRegistry()
+    );
+    relay = new OutboxRelay(
+        new InMemoryOutboxMapper(batch), template, publisher,
+        TransactionOperations.withoutTransaction(), batchSize + 1
+    );
+  }
+
+  @Benchmark
+  public Object relayBatch() {
+    relay.relay();
+    return template.getLastPayload();
+  }
+}
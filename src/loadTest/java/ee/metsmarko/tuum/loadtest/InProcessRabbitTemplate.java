@@ -0,0 +1,36 @@
+package ee.metsmarko.tuum.loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.lang.Nullable;
+
+/**
+ * RabbitTemplate stand-in that never opens a connection. Every message is confirmed immediately
+ * and counted, so event publishing costs what it costs in the service without a broker.
+ */
+class InProcessRabbitTemplate extends RabbitTemplate {
+  private final LongAdder published = new LongAdder();
+
+  @Override
+  public void send(String exchange, String routingKey, Message message,
+                   @Nullable CorrelationData correlationData) {
+    published.increment();
+    if (correlationData != null) {
+      correlationData.getFuture().set(new CorrelationData.Confirm(true, null));
+    }
+  }
+
+  @Override
+  public <T> T invoke(
+      OperationsCallback<T> action, @Nullable com.rabbitmq.client.ConfirmCallback acks,
+      @Nullable com.rabbitmq.client.ConfirmCallback nacks
+  ) {
+    return action.doInRabbit(this);
+  }
+
+  long getPublished() {
+    return published.sum();
+  }
+}
@@ -0,0 +1,202 @@
+package ee.metsmarko.tuum.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.CreateAccountRequest;
+import ee.metsmarko.tuum.account.CreateTransactionRequest;
+import ee.metsmarko.tuum.account.TransactionDirection;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a weighted mix of account endpoint calls from a fixed number of client threads. Without a
+ * rate every client sends its next request when the previous one completes. With a rate requests
+ * are scheduled at fixed intervals and latency is measured from the scheduled start, so a stalled
+ * service is charged for the requests it delayed instead of hiding them (coordinated omission).
+ */
+class LoadGenerator {
+  private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+  private static final BigDecimal CREDIT_AMOUNT = new BigDecimal("10.00");
+  private static final BigDecimal DEBIT_AMOUNT = new BigDecimal("1.00");
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(5))
+      .build();
+  private final ObjectMapper mapper;
+  private final URI baseUri;
+  private final LoadTestOptions options;
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+  private final List<UUID> accountIds = new ArrayList<>();
+
+  LoadGenerator(ObjectMapper mapper, URI baseUri, LoadTestOptions options) {
+    this.mapper = mapper;
+    this.baseUri = baseUri;
+    this.options = options;
+    this.operations = options.mix().keySet().toArray(Operation[]::new);
+    this.cumulativeWeights = new int[operations.length];
+    int total = 0;
+    for (int i = 0; i < operations.length; i++) {
+      total += options.mix().get(operations[i]);
+      cumulativeWeights[i] = total;
+    }
+  }
+
+  /**
+   * Creates the accounts the load runs against, each with a balance that the debits of a run do
+   * not exhaust.
+   */
+  void createAccounts() throws IOException, InterruptedException {
+    for (int i = 0; i < options.accounts(); i++) {
+      HttpResponse<byte[]> response = client.send(
+          request(Operation.CREATE_ACCOUNT, null), HttpResponse.BodyHandlers.ofByteArray()
+      );
+      checkOk(response);
+      UUID accountId = mapper.readValue(response.body(), Account.class).getId();
+      checkOk(client.send(
+          transaction(accountId, INITIAL_BALANCE, TransactionDirection.IN),
+          HttpResponse.BodyHandlers.ofByteArray()
+      ));
+      accountIds.add(accountId);
+    }
+  }
+
+  /**
+   * Runs the load for given time.
+   *
+   * @return latencies of every operation of the mix
+   */
+  Map<Operation, OperationStats> run(Duration duration) throws InterruptedException {
+    Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    for (Operation operation : operations) {
+      stats.put(operation, new OperationStats());
+    }
+    long deadline = System.nanoTime() + duration.toNanos();
+    List<Thread> clients = new ArrayList<>();
+    for (int i = 1; i <= options.clients(); i++) {
+      Thread thread = new Thread(() -> runClient(stats, deadline), "load-client-" + i);
+      thread.start();
+      clients.add(thread);
+    }
+    for (Thread thread : clients) {
+      thread.join();
+    }
+    return stats;
+  }
+
+  private void runClient(Map<Operation, OperationStats> stats, long deadline) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long interval = options.rate() > 0
+        ? (long) (TimeUnit.SECONDS.toNanos(1) * options.clients() / options.rate())
+        : 0;
+    // clients start spread over one interval, so that they do not send in lockstep
+    long scheduled = System.nanoTime() + (interval > 0 ? random.nextLong(interval) : 0);
+    while (scheduled < deadline) {
+      if (interval > 0) {
+        long wait = scheduled - System.nanoTime();
+        if (wait > 0) {
+          sleep(wait);
+        }
+      } else {
+        scheduled = System.nanoTime();
+      }
+      Operation operation = nextOperation(random);
+      boolean success;
+      try {
+        HttpResponse<Void> response = client.send(
+            request(operation, nextAccount(random)), HttpResponse.BodyHandlers.discarding()
+        );
+        success = response.statusCode() / 100 == 2;
+      } catch (IOException e) {
+        success = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      stats.get(operation).record(System.nanoTime() - scheduled, success);
+      scheduled += interval;
+    }
+  }
+
+  private Operation nextOperation(ThreadLocalRandom random) {
+    int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (pick < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    throw new IllegalStateException("weights do not cover " + pick);
+  }
+
+  private UUID nextAccount(ThreadLocalRandom random) {
+    if (options.hotAccounts() > 0 && random.nextDouble() < options.hotShare()) {
+      return accountIds.get(random.nextInt(options.hotAccounts()));
+    }
+    return accountIds.get(random.nextInt(accountIds.size()));
+  }
+
+  private HttpRequest request(Operation operation, UUID accountId) {
+    return switch (operation) {
+      case CREATE_ACCOUNT -> post("/api/account", new CreateAccountRequest(
+          UUID.randomUUID(), "EE", Set.of("EUR")
+      ));
+      case CREDIT -> transaction(accountId, CREDIT_AMOUNT, TransactionDirection.IN);
+      case DEBIT -> transaction(accountId, DEBIT_AMOUNT, TransactionDirection.OUT);
+      case GET_ACCOUNT -> get("/api/account/" + accountId);
+      case HISTORY -> get("/api/account/" + accountId + "/transactions?limit=20");
+    };
+  }
+
+  private HttpRequest transaction(UUID accountId, BigDecimal amount,
+                                  TransactionDirection direction) {
+    return post("/api/account/" + accountId + "/transaction", new CreateTransactionRequest(
+        amount, "EUR", direction, "load test " + direction
+    ));
+  }
+
+  private HttpRequest post(String path, Object body) {
+    try {
+      return HttpRequest.newBuilder(baseUri.resolve(path))
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+          .build();
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private HttpRequest get(String path) {
+    return HttpRequest.newBuilder(baseUri.resolve(path)).GET().build();
+  }
+
+  private static void checkOk(HttpResponse<byte[]> response) {
+    if (response.statusCode() != 200) {
+      throw new IllegalStateException(
+          response.request().uri() + " answered " + response.statusCode() + ": "
+              + new String(response.body())
+      );
+    }
+  }
+
+  private static void sleep(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
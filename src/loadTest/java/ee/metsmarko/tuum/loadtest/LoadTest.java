@@ -0,0 +1,136 @@
+package ee.metsmarko.tuum.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.TuumApplication;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Starts the service in-process with the given arguments and drives its account endpoints over
+ * HTTP, see {@link LoadGenerator}. Arguments are Spring properties: {@code loadtest.*} configure
+ * the load, see {@link LoadTestOptions}, everything else configures the service, e.g.
+ * {@code --tuum.account.balance-mode=ledger}. Without {@code spring.datasource.url} a Postgres
+ * container is started. Events are confirmed in-process, see {@link InProcessRabbitTemplate}.
+ *
+ * <p>The report has throughput and p50/p99/p99.9 latency of every operation, and every operation
+ * has an HdrHistogram percentile distribution ({@code .hgrm}) next to it for plotting runs
+ * against each other.
+ */
+public final class LoadTest {
+  private static final Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    SimpleCommandLinePropertySource given = new SimpleCommandLinePropertySource(args);
+    List<String> serviceArgs = new ArrayList<>(List.of(args));
+    PostgreSQLContainer<?> postgres = null;
+    if (!given.containsProperty("spring.datasource.url")) {
+      postgres = new PostgreSQLContainer<>("postgres:14");
+      postgres.start();
+      serviceArgs.add("--spring.datasource.url=" + postgres.getJdbcUrl());
+      serviceArgs.add("--spring.datasource.username=" + postgres.getUsername());
+      serviceArgs.add("--spring.datasource.password=" + postgres.getPassword());
+    }
+    addDefault(serviceArgs, given, "server.port", "0");
+    // request logging of the service would dominate the measured latencies
+    addDefault(serviceArgs, given, "logging.level.root", "WARN");
+    addDefault(serviceArgs, given, "logging.level.ee.metsmarko.tuum.loadtest", "INFO");
+    // hot accounts would be throttled and the test would measure 429 responses
+    addDefault(serviceArgs, given, "tuum.account.rate-limit.enabled", "false");
+    try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+        new SpringApplicationBuilder(TuumApplication.class).run(serviceArgs.toArray(String[]::new))
+    ) {
+      LoadTestOptions options = LoadTestOptions.from(context.getEnvironment());
+      ObjectMapper mapper = context.getBean(ObjectMapper.class);
+      LoadGenerator generator = new LoadGenerator(
+          mapper, URI.create("http://localhost:" + context.getWebServer().getPort()), options
+      );
+      log.info("Creating {} accounts", options.accounts());
+      generator.createAccounts();
+      log.info("Warming up for {}", options.warmup());
+      generator.run(options.warmup());
+      log.info("Measuring for {}", options.duration());
+      Instant startedAt = Instant.now();
+      Map<Operation, OperationStats> stats = generator.run(options.duration());
+      LoadTestReport report = report(startedAt, options, given, stats);
+      write(mapper, report, stats, options.report());
+      log.info("Total {} requests/s, p50 {} ms, p99 {} ms, p99.9 {} ms, report written to {}",
+          report.total().throughput(), report.total().p50(), report.total().p99(),
+          report.total().p999(), options.report().toAbsolutePath());
+    } finally {
+      if (postgres != null) {
+        postgres.stop();
+      }
+    }
+  }
+
+  private static void addDefault(List<String> args, SimpleCommandLinePropertySource given,
+                                 String name, String value) {
+    if (!given.containsProperty(name)) {
+      args.add("--" + name + "=" + value);
+    }
+  }
+
+  private static LoadTestReport report(Instant startedAt, LoadTestOptions options,
+                                       SimpleCommandLinePropertySource given,
+                                       Map<Operation, OperationStats> stats) {
+    Map<String, String> settings = new TreeMap<>();
+    for (String name : given.getPropertyNames()) {
+      if (!name.startsWith("loadtest.") && !name.startsWith("spring.datasource.")) {
+        settings.put(name, String.valueOf(given.getProperty(name)));
+      }
+    }
+    Map<String, LoadTestReport.Result> operations = new LinkedHashMap<>();
+    Histogram total = null;
+    long errors = 0;
+    for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+      Histogram latencies = entry.getValue().latencies();
+      operations.put(entry.getKey().key, LoadTestReport.Result.of(
+          latencies, entry.getValue().errors(), options.duration()
+      ));
+      if (total == null) {
+        total = latencies.copy();
+      } else {
+        total.add(latencies);
+      }
+      errors += entry.getValue().errors();
+    }
+    return new LoadTestReport(
+        startedAt, options, settings, operations,
+        LoadTestReport.Result.of(total, errors, options.duration())
+    );
+  }
+
+  private static void write(ObjectMapper mapper, LoadTestReport report,
+                            Map<Operation, OperationStats> stats, Path file) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+    for (Map.Entry<Operation, OperationStats> entry : stats.entrySet()) {
+      try (PrintStream out = new PrintStream(
+          Files.newOutputStream(directory.resolve(entry.getKey().key + ".hgrm"))
+      )) {
+        // recorded in microseconds, written in milliseconds
+        entry.getValue().latencies().outputPercentileDistribution(out, 1000.0);
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package ee.metsmarko.tuum.loadtest;
+
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the auto-configured RabbitTemplate, the load test runs without a broker.
+ */
+@Configuration
+public class LoadTestConf {
+  @Bean
+  public RabbitTemplate rabbitTemplate() {
+    return new InProcessRabbitTemplate();
+  }
+}
@@ -0,0 +1,65 @@
+package ee.metsmarko.tuum.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load test settings, read from {@code loadtest.*} properties.
+ *
+ * @param clients     concurrent clients, each with at most one request in flight
+ * @param warmup      time the load runs before it is measured
+ * @param duration    measured time
+ * @param rate        requests per second of all clients together, 0 to send the next request as
+ *                    soon as the previous one completes
+ * @param accounts    accounts created before the load starts, the other operations use them
+ * @param mix         relative weight of every operation
+ * @param hotAccounts accounts receiving {@code hotShare} of the load, 0 for a uniform load
+ * @param hotShare    share of account operations sent to the hot accounts
+ * @param report      file the results are written to, percentile distributions are written
+ *                    next to it
+ */
+record LoadTestOptions(int clients, Duration warmup, Duration duration, double rate, int accounts,
+                       Map<Operation, Integer> mix, int hotAccounts, double hotShare,
+                       Path report) {
+  private static final String DEFAULT_MIX =
+      "create-account:1,credit:4,debit:4,get-account:8,history:3";
+
+  static LoadTestOptions from(Environment env) {
+    LoadTestOptions options = new LoadTestOptions(
+        env.getProperty("loadtest.clients", Integer.class, 16),
+        env.getProperty("loadtest.warmup", Duration.class, Duration.ofSeconds(10)),
+        env.getProperty("loadtest.duration", Duration.class, Duration.ofSeconds(60)),
+        env.getProperty("loadtest.rate", Double.class, 0.0),
+        env.getProperty("loadtest.accounts", Integer.class, 1000),
+        parseMix(env.getProperty("loadtest.mix", DEFAULT_MIX)),
+        env.getProperty("loadtest.hot-accounts", Integer.class, 0),
+        env.getProperty("loadtest.hot-share", Double.class, 0.9),
+        Path.of(env.getProperty("loadtest.report", "build/reports/loadtest/results.json"))
+    );
+    if (options.clients < 1 || options.accounts < 1 || options.hotAccounts > options.accounts) {
+      throw new IllegalArgumentException("invalid load test options " + options);
+    }
+    return options;
+  }
+
+  /**
+   * Parses {@code operation:weight} pairs separated by commas, e.g. {@code credit:1,debit:2}.
+   */
+  static Map<Operation, Integer> parseMix(String mix) {
+    Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    for (String entry : mix.split(",")) {
+      String[] parts = entry.trim().split(":");
+      if (parts.length != 2 || Integer.parseInt(parts[1]) < 0) {
+        throw new IllegalArgumentException("invalid mix entry " + entry);
+      }
+      weights.put(Operation.fromKey(parts[0]), Integer.parseInt(parts[1]));
+    }
+    if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+      throw new IllegalArgumentException("mix has no operations");
+    }
+    return weights;
+  }
+}
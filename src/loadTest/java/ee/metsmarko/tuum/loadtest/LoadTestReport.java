@@ -0,0 +1,32 @@
+package ee.metsmarko.tuum.loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Results of a load test run. Latencies are in milliseconds, throughput in requests per second of
+ * the measured duration.
+ */
+record LoadTestReport(Instant startedAt, LoadTestOptions options, Map<String, String> settings,
+                      Map<String, Result> operations, Result total) {
+
+  record Result(long count, long errors, double throughput, double p50, double p99, double p999,
+                double max) {
+    static Result of(Histogram latencies, long errors, Duration duration) {
+      return new Result(
+          latencies.getTotalCount(), errors,
+          latencies.getTotalCount() * 1000.0 / duration.toMillis(),
+          millis(latencies.getValueAtPercentile(50)),
+          millis(latencies.getValueAtPercentile(99)),
+          millis(latencies.getValueAtPercentile(99.9)),
+          millis(latencies.getMaxValue())
+      );
+    }
+
+    private static double millis(long micros) {
+      return micros / 1000.0;
+    }
+  }
+}
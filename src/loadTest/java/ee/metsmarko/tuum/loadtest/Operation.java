@@ -0,0 +1,27 @@
+package ee.metsmarko.tuum.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Account endpoint calls the load is mixed from, keyed as in {@code loadtest.mix}.
+ */
+enum Operation {
+  CREATE_ACCOUNT("create-account"),
+  CREDIT("credit"),
+  DEBIT("debit"),
+  GET_ACCOUNT("get-account"),
+  HISTORY("history");
+
+  final String key;
+
+  Operation(String key) {
+    this.key = key;
+  }
+
+  static Operation fromKey(String key) {
+    return Arrays.stream(values())
+        .filter(operation -> operation.key.equals(key))
+        .findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("unknown operation " + key));
+  }
+}
@@ -0,0 +1,33 @@
+package ee.metsmarko.tuum.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Latencies of one operation in microseconds. Failed calls are recorded too, a slow error is as
+ * slow for the client as a slow success.
+ */
+class OperationStats {
+  private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+  private final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+  private final LongAdder errors = new LongAdder();
+
+  void record(long latencyNanos, boolean success) {
+    latencies.recordValue(
+        Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS)
+    );
+    if (!success) {
+      errors.increment();
+    }
+  }
+
+  Histogram latencies() {
+    return latencies;
+  }
+
+  long errors() {
+    return errors.sum();
+  }
+}
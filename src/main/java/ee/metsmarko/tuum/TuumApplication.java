@@ -2,8 +2,10 @@ package ee.metsmarko.tuum;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TuumApplication {
 
   public static void main(String[] args) {
@@ -1,5 +1,6 @@
 package ee.metsmarko.tuum.account;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.List;
 import java.util.UUID;
 
@@ -8,6 +9,7 @@ public class Account {
   private UUID customerId;
   private String country;
   private List<AccountBalance> accountBalances;
+  private long version;
 
   private Account() {
     // required by MyBatis as it is not able to instantiate immutable objects that have collections
@@ -21,6 +23,12 @@ public class Account {
     this.accountBalances = accountBalances;
   }
 
+  public Account(UUID id, UUID customerId, String country, List<AccountBalance> accountBalances,
+                 long version) {
+    this(id, customerId, country, accountBalances);
+    this.version = version;
+  }
+
   public UUID getId() {
     return id;
   }
@@ -36,4 +44,13 @@ public class Account {
   public List<AccountBalance> getAccountBalances() {
     return accountBalances;
   }
+
+  /**
+   * Returns number of balance changes of the account, 0 for a new account. Sent as the ETag of the
+   * account instead of the body.
+   */
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
 }
@@ -1,21 +1,30 @@
 package ee.metsmarko.tuum.account;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
 
 public final class AccountBalance {
-  private final String currency;
-  private final BigDecimal balance;
+  private final Currency currency;
+  private final Money balance;
 
-  public AccountBalance(String currency, BigDecimal balance) {
+  public AccountBalance(Currency currency, Money balance) {
     this.currency = currency;
     this.balance = balance;
   }
 
-  public String getCurrency() {
+  @JsonCreator
+  AccountBalance(
+      @JsonProperty("currency") Currency currency, @JsonProperty("balance") BigDecimal balance
+  ) {
+    this(currency, Money.of(balance, currency));
+  }
+
+  public Currency getCurrency() {
     return currency;
   }
 
-  public BigDecimal getBalance() {
+  public Money getBalance() {
     return balance;
   }
 }
@@ -0,0 +1,132 @@
+package ee.metsmarko.tuum.account;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ee.metsmarko.tuum.replica.ReadConsistency;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Read-through cache of accounts with their balances, bounded by size and time to live. Entries
+ * are evicted after a transaction that changes balances commits. Eviction waits for a concurrent
+ * load of the same account, so a load that read the balances before the commit is never kept.
+ *
+ * <p>Changes made by other instances of the service are seen only after the entry expires. With
+ * replicas, an entry loaded from a lagging replica may also be stale until it expires, so reads
+ * that require a consistency token skip the cache.
+ *
+ * <p>Versions of loaded accounts are kept in a separate, larger map with the same time to live,
+ * so that conditional requests of accounts that no longer fit the cache are answered without
+ * loading them.
+ */
+@Component
+public class AccountCache {
+  static final String CACHE_NAME = "accounts";
+  static final String VERSIONS_CACHE_NAME = "account-versions";
+  private final AccountMapper accountMapper;
+  private final Cache<UUID, Account> cache;
+  private final Cache<UUID, Long> versions;
+
+  public AccountCache(
+      AccountMapper accountMapper, MeterRegistry meterRegistry,
+      @Value("${tuum.account.cache.enabled}") boolean enabled,
+      @Value("${tuum.account.cache.maximum-size}") long maximumSize,
+      @Value("${tuum.account.cache.versions-maximum-size}") long versionsMaximumSize,
+      @Value("${tuum.account.cache.time-to-live}") Duration timeToLive
+  ) {
+    this.accountMapper = accountMapper;
+    if (enabled) {
+      this.cache = Caffeine.newBuilder()
+          .maximumSize(maximumSize)
+          .expireAfterWrite(timeToLive)
+          .recordStats()
+          .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+      this.versions = Caffeine.newBuilder()
+          .maximumSize(versionsMaximumSize)
+          .expireAfterWrite(timeToLive)
+          .recordStats()
+          .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, versions, VERSIONS_CACHE_NAME);
+    } else {
+      this.cache = null;
+      this.versions = null;
+    }
+  }
+
+  /**
+   * Returns account by its id, loading it from the database on a cache miss. Missing accounts are
+   * not cached. The cache is skipped when reads must see a consistency token.
+   *
+   * @param id id of the account
+   * @return an Optional containing account if found, empty Optional otherwise
+   */
+  public Optional<Account> getAccountById(UUID id) {
+    if (cache == null || ReadConsistency.isRequired()) {
+      return Optional.ofNullable(accountMapper.getAccountById(id));
+    }
+    return Optional.ofNullable(cache.get(id, this::load));
+  }
+
+  /**
+   * Returns version of the account from the last load without touching the database.
+   *
+   * @param id id of the account
+   * @return version, empty when the account was not loaded recently or reads must see a
+   *     consistency token
+   */
+  public OptionalLong getVersion(UUID id) {
+    if (versions == null || ReadConsistency.isRequired()) {
+      return OptionalLong.empty();
+    }
+    Long version = versions.getIfPresent(id);
+    return version == null ? OptionalLong.empty() : OptionalLong.of(version);
+  }
+
+  /**
+   * Evicts the account when the current transaction commits, or immediately when there is no
+   * transaction.
+   *
+   * @param id id of the account
+   */
+  public void evictAfterCommit(UUID id) {
+    if (cache == null) {
+      return;
+    }
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      evict(id);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        evict(id);
+      }
+    });
+  }
+
+  /**
+   * Version is stored while the cache entry is loaded, so invalidating the entry first waits for a
+   * concurrent load and its stale version is removed right after.
+   */
+  private void evict(UUID id) {
+    cache.invalidate(id);
+    versions.invalidate(id);
+  }
+
+  private Account load(UUID id) {
+    Account account = accountMapper.getAccountById(id);
+    if (account != null) {
+      versions.put(id, account.getVersion());
+    }
+    return account;
+  }
+}
@@ -1,47 +1,257 @@
 package ee.metsmarko.tuum.account;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.projection.BalanceProjection;
 import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import ee.metsmarko.tuum.ratelimit.RateLimited;
+import ee.metsmarko.tuum.replica.ConsistencyTokens;
+import ee.metsmarko.tuum.replica.IssuesConsistencyToken;
+import ee.metsmarko.tuum.replica.ReadConsistency;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @RestController
 @RequestMapping("/api/account")
 public class AccountController {
+  private static final MediaType APPLICATION_NDJSON = new MediaType("application", "x-ndjson");
   private final AccountService accountService;
+  private final IdempotentTransactionService idempotentTransactionService;
+  private final ObjectMapper mapper;
+  private final Optional<ConsistencyTokens> consistencyTokens;
+  private final Optional<AsyncTransactionProcessor> asyncTransactionProcessor;
+  private final Optional<BalanceProjection> balanceProjection;
+  private final Duration exportTimeout;
 
-  public AccountController(AccountService accountService) {
+  public AccountController(AccountService accountService,
+                           IdempotentTransactionService idempotentTransactionService,
+                           ObjectMapper mapper,
+                           Optional<ConsistencyTokens> consistencyTokens,
+                           Optional<AsyncTransactionProcessor> asyncTransactionProcessor,
+                           Optional<BalanceProjection> balanceProjection,
+                           @Value("${tuum.account.export.timeout}") Duration exportTimeout) {
     this.accountService = accountService;
+    this.idempotentTransactionService = idempotentTransactionService;
+    this.mapper = mapper;
+    this.consistencyTokens = consistencyTokens;
+    this.asyncTransactionProcessor = asyncTransactionProcessor;
+    this.balanceProjection = balanceProjection;
+    this.exportTimeout = exportTimeout;
   }
 
   @PostMapping
-  public Account createAccount(@RequestBody CreateAccountRequest createAccountRequest)
-      throws TuumException {
+  @IssuesConsistencyToken
+  public Account createAccount(
+      @RequestBody CreateAccountRequest createAccountRequest
+  ) throws TuumException {
     return accountService.createAccount(createAccountRequest);
   }
 
+  /**
+   * Returns the account with its version as a strong ETag. A request whose
+   * {@code If-None-Match} header matches the version of the last load is answered with 304
+   * without reading the account, otherwise Spring compares the header with the loaded version.
+   * With the balance projection enabled the account is read from the projection, unless the
+   * request must see a consistency token.
+   */
   @GetMapping("/{accountId}")
-  public ResponseEntity<Account> getAccount(@PathVariable UUID accountId) {
-    return accountService.getAccountById(accountId)
-        .map(a -> ResponseEntity.ok().body(a))
-        .orElse(ResponseEntity.notFound().build());
+  public ResponseEntity<Account> getAccount(
+      @PathVariable UUID accountId,
+      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) List<String> ifNoneMatch
+  ) {
+    if (balanceProjection.isPresent() && !ReadConsistency.isRequired()) {
+      return toResponse(balanceProjection.get().getAccountById(accountId));
+    }
+    if (ifNoneMatch != null) {
+      OptionalLong version = accountService.getAccountVersion(accountId);
+      if (version.isPresent() && matches(ifNoneMatch, eTag(version.getAsLong()))) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(eTag(version.getAsLong()))
+            .build();
+      }
+    }
+    return toResponse(accountService.getAccountById(accountId));
   }
 
   @GetMapping("/{accountId}/transactions")
-  public List<Transaction> getTransactions(@PathVariable UUID accountId) throws TuumException {
-    return accountService.getTransactionsByAccountId(accountId);
+  public TransactionPage getTransactions(
+      @PathVariable UUID accountId, @RequestParam(required = false) String cursor,
+      @RequestParam(defaultValue = "100") int limit
+  ) throws TuumException {
+    return accountService.getTransactionsByAccountId(accountId, cursor, limit);
   }
 
+  /**
+   * Returns daily turnover per currency between two UTC days, inclusive, from the turnover rollup.
+   */
+  @GetMapping("/{accountId}/summary")
+  public AccountSummary getSummary(
+      @PathVariable UUID accountId,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+  ) throws TuumException {
+    return accountService.getSummary(accountId, from, to);
+  }
+
+  /**
+   * Streams the full transaction history as newline delimited JSON, one transaction per line.
+   * Exports of large accounts take long, so the export has its own async timeout,
+   * {@code tuum.account.export.timeout}, and other async requests keep the default one.
+   */
+  @GetMapping("/{accountId}/transactions/export")
+  public WebAsyncTask<Void> exportTransactions(
+      @PathVariable UUID accountId, HttpServletResponse response
+  ) throws TuumException {
+    if (accountService.getAccountById(accountId).isEmpty()) {
+      throw new TuumInvalidInputException("invalid account");
+    }
+    response.setContentType(APPLICATION_NDJSON.toString());
+    return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+      OutputStream out = response.getOutputStream();
+      accountService.exportTransactions(accountId, tx -> {
+        out.write(mapper.writeValueAsBytes(tx));
+        out.write('\n');
+      });
+      out.flush();
+      return null;
+    });
+  }
+
+  /**
+   * Creates a transaction. Requests repeated with the same {@code Idempotency-Key} header return
+   * the originally created transaction instead of creating a new one. With group commit the
+   * response is asynchronous: the request thread is released while the transaction waits for its
+   * batch and the response is completed by a group commit writer thread, which blocks on JDBC.
+   * Otherwise the transaction is created on the request thread as before.
+   */
   @PostMapping("/{accountId}/transaction")
-  public CreateTransactionResponse createTransaction(
-      @PathVariable UUID accountId, @RequestBody CreateTransactionRequest createTransactionRequest
+  @IssuesConsistencyToken
+  @RateLimited
+  public CompletableFuture<CreateTransactionResponse> createTransaction(
+      @PathVariable UUID accountId, @RequestBody CreateTransactionRequest createTransactionRequest,
+      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey
+  ) throws TuumException {
+    return idempotentTransactionService.submitTransaction(
+        accountId, createTransactionRequest, idempotencyKey
+    );
+  }
+
+  /**
+   * Queues a transaction and returns 202 with its id without waiting for it to be posted. The
+   * outcome is polled from the URL in the {@code Location} header. Transactions of an account are
+   * posted in the order they are queued.
+   */
+  @PostMapping(path = "/{accountId}/transaction", params = "mode=async")
+  @RateLimited
+  public ResponseEntity<AsyncTransactionStatus> submitTransaction(
+      @PathVariable UUID accountId, @RequestBody CreateTransactionRequest createTransactionRequest,
+      @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey
+  ) throws TuumException {
+    if (asyncTransactionProcessor.isEmpty()) {
+      throw new TuumInvalidInputException("async mode is disabled");
+    }
+    // the returned transaction id identifies a retried submission instead
+    if (idempotencyKey != null) {
+      throw new TuumInvalidInputException("idempotency key is not supported in async mode");
+    }
+    AsyncTransactionStatus status =
+        asyncTransactionProcessor.get().submit(accountId, createTransactionRequest);
+    URI location = ServletUriComponentsBuilder.fromCurrentRequestUri()
+        .path("/{transactionId}")
+        .buildAndExpand(status.transactionId())
+        .toUri();
+    return ResponseEntity.accepted().location(location).body(status);
+  }
+
+  /**
+   * Returns status of a transaction queued in async mode. Statuses are kept in memory for
+   * {@code tuum.account.async.status-time-to-live}, later a posted transaction is read from the
+   * database.
+   */
+  @GetMapping("/{accountId}/transaction/{transactionId}")
+  public ResponseEntity<AsyncTransactionStatus> getTransactionStatus(
+      @PathVariable UUID accountId, @PathVariable UUID transactionId
+  ) {
+    Optional<AsyncTransactionStatus> status = asyncTransactionProcessor
+        .flatMap(processor -> processor.getStatus(accountId, transactionId));
+    if (status.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    if (status.get().status() == AsyncTransactionStatus.Status.POSTED) {
+      return withConsistencyToken(status.get());
+    }
+    return ResponseEntity.ok(status.get());
+  }
+
+  /**
+   * Posts up to 1000 transactions of any accounts at once. Invalid items are rejected one by one,
+   * the response has a result for every item in request order.
+   */
+  @PostMapping("/transactions/batch")
+  @IssuesConsistencyToken
+  public BatchTransactionResponse createTransactions(
+      @RequestBody BatchTransactionRequest batchTransactionRequest
   ) throws TuumException {
-    return accountService.createTransaction(accountId, createTransactionRequest);
+    return accountService.createTransactions(batchTransactionRequest);
+  }
+
+  private static ResponseEntity<Account> toResponse(Optional<Account> account) {
+    return account
+        .map(a -> ResponseEntity.ok().eTag(eTag(a.getVersion())).body(a))
+        .orElse(ResponseEntity.notFound().build());
+  }
+
+  private static String eTag(long version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * If-None-Match uses the weak comparison, so a weak tag matches too.
+   */
+  private static boolean matches(List<String> ifNoneMatch, String eTag) {
+    for (String tag : ifNoneMatch) {
+      String trimmed = tag.trim();
+      if (trimmed.equals("*") || trimmed.equals(eTag) || trimmed.equals("W/" + eTag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Adds a {@value ConsistencyTokens#HEADER} header when reads are served by replicas or the
+   * balance projection, like {@link IssuesConsistencyToken} for responses that only sometimes
+   * follow a write. Must be called after the write is committed.
+   */
+  private <T> ResponseEntity<T> withConsistencyToken(T body) {
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+    consistencyTokens.ifPresent(
+        tokens -> response.header(ConsistencyTokens.HEADER, tokens.current())
+    );
+    return response.body(body);
   }
 }
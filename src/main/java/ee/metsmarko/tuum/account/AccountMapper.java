@@ -1,10 +1,12 @@
 package ee.metsmarko.tuum.account;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 @Mapper
 public interface AccountMapper {
@@ -15,20 +17,94 @@ public interface AccountMapper {
 
   Account getAccountById(UUID id);
 
-  void increaseBalance(
-      @Param("accountId") UUID accountId, @Param("currency") String currency,
-      @Param("amount") BigDecimal amount
+  /**
+   * Increases balance slot and stores the transaction in a single statement.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @param slot           balance slot to credit, created when missing
+   * @param singleSlot     true when the balance has only one slot
+   * @return the transaction with the balance and version, with several slots the balance at the
+   *     time of the statement and version 0, see {@link PostedTransaction}
+   */
+  PostedTransaction credit(
+      @Param("tx") Transaction transaction, @Param("idempotencyKey") String idempotencyKey,
+      @Param("slot") int slot, @Param("singleSlot") boolean singleSlot
   );
 
-  void decreaseBalance(
-      @Param("accountId") UUID accountId, @Param("currency") String currency,
-      @Param("amount") BigDecimal amount
+  /**
+   * Decreases the first balance slot with enough funds, starting from given slot, and stores the
+   * transaction in a single statement.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @param slot           balance slot to try first
+   * @param singleSlot     true when the balance has only one slot, it is waited for then,
+   *                       otherwise slots locked by other transactions are skipped
+   * @return the transaction with the balance and version, with several slots the balance at the
+   *     time of the statement and version 0, see {@link PostedTransaction}, null when no slot can
+   *     be debited, nothing is changed then
+   */
+  PostedTransaction debit(
+      @Param("tx") Transaction transaction, @Param("idempotencyKey") String idempotencyKey,
+      @Param("slot") int slot, @Param("singleSlot") boolean singleSlot
   );
 
-  void createTransaction(Transaction transaction);
+  /**
+   * Stores a transaction with its id, idempotency key and the balance after it.
+   */
+  void insertTransaction(
+      @Param("tx") Transaction transaction, @Param("idempotencyKey") String idempotencyKey,
+      @Param("balanceAfter") Money balanceAfter
+  );
+
+  /**
+   * Returns the transaction posted with given idempotency key, null when there is none.
+   */
+  CreateTransactionResponse findTransactionByIdempotencyKey(
+      @Param("accountId") UUID accountId, @Param("idempotencyKey") String idempotencyKey
+  );
+
+  /**
+   * Returns the transaction with given id posted to the account, null when there is none.
+   */
+  CreateTransactionResponse findTransactionById(
+      @Param("accountId") UUID accountId, @Param("transactionId") UUID transactionId
+  );
+
+  /**
+   * Creates the missing slot rows, up to the given number of slots, of existing balances. Rows are
+   * created empty and existing rows are not locked.
+   */
+  void createBalanceSlots(@Param("keys") Collection<BalanceKey> keys, @Param("slots") int slots);
 
-  List<Transaction> getTransactionsByAccountId(UUID accountId);
+  /**
+   * Locks balance rows for update in (account_id, currency) order and sums the slots of each
+   * balance. Rows that do not exist are missing from the result.
+   */
+  List<LockedBalance> lockBalances(@Param("keys") Collection<BalanceKey> keys);
 
-  AccountBalance getBalanceForUpdate(@Param("accountId") UUID accountId,
-                                     @Param("currency") String currency);
+  /**
+   * Sets all slot rows of the balances in a single statement, the balance is moved to slot 0 and
+   * other slots are emptied. A slot row created after {@link #lockBalances} would be emptied too,
+   * so callers create all slots with {@link #createBalanceSlots} before they lock them.
+   */
+  void updateBalances(@Param("balances") Collection<BalanceUpdate> balances);
+
+  /**
+   * Stores transactions with their ids in a single statement.
+   */
+  void insertTransactions(@Param("transactions") List<Transaction> transactions);
+
+  List<Transaction> getTransactionsByAccountId(
+      @Param("accountId") UUID accountId, @Param("after") TransactionCursor after,
+      @Param("limit") int limit
+  );
+
+  Cursor<Transaction> streamTransactionsByAccountId(UUID accountId);
+
+  /**
+   * Reads daily turnover from the rollup maintained by the statements that insert transactions.
+   */
+  List<DailyTurnover> getTurnover(
+      @Param("accountId") UUID accountId, @Param("from") LocalDate from, @Param("to") LocalDate to
+  );
 }
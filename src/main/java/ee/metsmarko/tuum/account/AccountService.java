@@ -1,13 +1,30 @@
 package ee.metsmarko.tuum.account;
 
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+
 import ee.metsmarko.tuum.account.event.AccountEventPublisher;
 import ee.metsmarko.tuum.exception.TuumException;
 import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.UUID;
+import org.apache.ibatis.cursor.Cursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -16,13 +33,23 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class AccountService {
   private static final Logger log = LoggerFactory.getLogger(AccountService.class);
-  private static final Set<String> ALLOWED_CURRENCIES = Set.of("EUR", "SEK", "GBP", "USD");
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_BATCH_SIZE = 1000;
+  static final int MAX_SUMMARY_DAYS = 366;
+  private static final Base64.Encoder CURSOR_ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder CURSOR_DECODER = Base64.getUrlDecoder();
+  private static final int CURSOR_LENGTH = 24;
 
   private final AccountMapper accountMapper;
+  private final BalanceStore balanceStore;
+  private final AccountCache accountCache;
   private final AccountEventPublisher eventPublisher;
 
-  public AccountService(AccountMapper accountMapper, AccountEventPublisher eventPublisher) {
+  public AccountService(AccountMapper accountMapper, BalanceStore balanceStore,
+                        AccountCache accountCache, AccountEventPublisher eventPublisher) {
     this.accountMapper = accountMapper;
+    this.balanceStore = balanceStore;
+    this.accountCache = accountCache;
     this.eventPublisher = eventPublisher;
   }
 
@@ -37,7 +64,8 @@ public class AccountService {
     log.info("Create account: {}", createAccountRequest);
     validateNewAccountInput(createAccountRequest);
     List<AccountBalance> balances = createAccountRequest.currencies().stream()
-        .map(c -> new AccountBalance(c, BigDecimal.ZERO)).toList();
+        .map(Currency::fromCode)
+        .map(c -> new AccountBalance(c, Money.zero(c))).toList();
     Account account = new Account(
         null, createAccountRequest.customerId(), createAccountRequest.country(), balances
     );
@@ -48,17 +76,32 @@ public class AccountService {
   }
 
   /**
-   * Returns account by its id.
+   * Returns account by its id. Account is read through {@link AccountCache}, from a replica when
+   * replicas are enabled.
    *
    * @param id id of the account
    * @return an Optional containing account if found, empty Optional otherwise
    */
+  @Transactional(readOnly = true)
   public Optional<Account> getAccountById(UUID id) {
-    return Optional.ofNullable(accountMapper.getAccountById(id));
+    return accountCache.getAccountById(id);
+  }
+
+  /**
+   * Returns version of the account, see {@link Account#getVersion()}, when the account was loaded
+   * recently. The database is not read.
+   *
+   * @param id id of the account
+   * @return version of the last load, empty when it is not known
+   */
+  public OptionalLong getAccountVersion(UUID id) {
+    return accountCache.getVersion(id);
   }
 
   /**
-   * Creates a new transaction and updates account balance for given currency.
+   * Creates a new transaction and updates account balance for given currency through
+   * {@link BalanceStore}. Account is validated against the cached account, its currencies never
+   * change.
    *
    * @param accountId                account id on which transaction is performed
    * @param createTransactionRequest transaction data
@@ -68,74 +111,313 @@ public class AccountService {
   @Transactional
   public CreateTransactionResponse createTransaction(
       UUID accountId, CreateTransactionRequest createTransactionRequest
+  ) throws TuumException {
+    return createTransaction(accountId, createTransactionRequest, null);
+  }
+
+  /**
+   * Creates a new transaction and stores it with given idempotency key. Fails with
+   * {@link org.springframework.dao.DuplicateKeyException} when the key is already used for the
+   * account, see {@link IdempotentTransactionService}.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @param idempotencyKey           client supplied key, null when not given
+   * @return created transaction with updated account balance for given currency
+   * @throws TuumException when validation fails
+   */
+  @Transactional
+  public CreateTransactionResponse createTransaction(
+      UUID accountId, CreateTransactionRequest createTransactionRequest, String idempotencyKey
+  ) throws TuumException {
+    return createTransaction(accountId, createTransactionRequest, idempotencyKey, null);
+  }
+
+  /**
+   * Creates a new transaction with a client side generated id, see
+   * {@link AsyncTransactionProcessor}.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @param idempotencyKey           client supplied key, null when not given
+   * @param transactionId            id of the new transaction, null to let the database generate it
+   * @return created transaction with updated account balance for given currency
+   * @throws TuumException when validation fails
+   */
+  @Transactional
+  public CreateTransactionResponse createTransaction(
+      UUID accountId, CreateTransactionRequest createTransactionRequest, String idempotencyKey,
+      UUID transactionId
   ) throws TuumException {
     log.info("Create transaction for user {}: {}", accountId, createTransactionRequest);
-    Transaction transaction = mapToTransaction(accountId, createTransactionRequest);
+    Transaction transaction = mapToTransaction(transactionId, accountId, createTransactionRequest);
     validateTransaction(getAccountById(accountId), transaction);
-    switch (transaction.getDirection()) {
-      case IN -> increaseBalance(transaction);
-      case OUT -> decreaseBalance(transaction);
-      default -> throw new TuumInvalidInputException("invalid direction");
-    }
-    accountMapper.createTransaction(transaction);
-    CreateTransactionResponse createTransactionResponse =
-        createResponse(transaction, accountMapper.getAccountById(accountId));
-    eventPublisher.transactionCreated(transaction);
-    eventPublisher.balanceChanged(createTransactionResponse);
+    PostedTransaction posted = transaction.getDirection() == IN
+        ? balanceStore.credit(transaction, idempotencyKey)
+        : balanceStore.debit(transaction, idempotencyKey);
+    if (posted == null) {
+      throw new TuumInvalidInputException("insufficient funds");
+    }
+    accountCache.evictAfterCommit(accountId);
+    CreateTransactionResponse createTransactionResponse = createResponse(transaction, posted);
+    eventPublisher.transactionCreated(new Transaction(
+        posted.id(), transaction.getAccountId(), transaction.getAmount(),
+        transaction.getCurrency(), transaction.getDirection(), transaction.getDescription(), null
+    ));
+    eventPublisher.balanceChanged(createTransactionResponse, posted.version());
     return createTransactionResponse;
   }
 
-  private void increaseBalance(Transaction transaction) {
-    accountMapper.increaseBalance(transaction.getAccountId(), transaction.getCurrency(),
-        transaction.getAmount());
+  /**
+   * Posts a batch of transactions in one database transaction. Items that fail validation or
+   * would make a balance negative are rejected, the rest are posted in request order. Balance rows
+   * are locked in (account_id, currency) order, so concurrent batches can not deadlock, and the
+   * whole batch is written with a fixed number of statements. Every posted transaction gets the
+   * next version of its balance, like a transaction posted alone.
+   *
+   * @param request transactions to post, at most {@value #MAX_BATCH_SIZE}
+   * @return result of each item in request order
+   * @throws TuumException when the batch is empty or too large
+   */
+  @Transactional
+  public BatchTransactionResponse createTransactions(BatchTransactionRequest request)
+      throws TuumException {
+    List<BatchTransactionItem> items = request.transactions();
+    if (items == null || items.isEmpty()) {
+      throw new TuumInvalidInputException("transactions missing");
+    }
+    if (items.size() > MAX_BATCH_SIZE) {
+      throw new TuumInvalidInputException("too many transactions, max is " + MAX_BATCH_SIZE);
+    }
+    log.info("Create batch of {} transactions", items.size());
+    List<Transaction> transactions = new ArrayList<>(items.size());
+    String[] errors = new String[items.size()];
+    Set<BalanceKey> keys = new HashSet<>();
+    for (int i = 0; i < items.size(); i++) {
+      Transaction transaction = mapToTransaction(items.get(i));
+      transactions.add(transaction);
+      try {
+        if (transaction.getAccountId() == null) {
+          throw new TuumInvalidInputException("account is missing");
+        }
+        validateTransactionData(transaction);
+        if (transaction.getCurrency() != null) {
+          keys.add(new BalanceKey(transaction.getAccountId(), transaction.getCurrency()));
+        }
+      } catch (TuumInvalidInputException e) {
+        errors[i] = e.getMessage();
+      }
+    }
+    Map<BalanceKey, LockedBalance> locked = new HashMap<>();
+    Map<BalanceKey, Money> balances = new HashMap<>();
+    Map<BalanceKey, Integer> postedCounts = new HashMap<>();
+    if (!keys.isEmpty()) {
+      balanceStore.lockBalances(keys).forEach(b -> {
+        locked.put(b.key(), b);
+        balances.put(b.key(), b.balance());
+      });
+    }
+
+    List<BatchTransactionResult> results = new ArrayList<>(items.size());
+    List<Transaction> posted = new ArrayList<>(items.size());
+    List<CreateTransactionResponse> responses = new ArrayList<>(items.size());
+    long[] versions = new long[items.size()];
+    for (int i = 0; i < transactions.size(); i++) {
+      Transaction transaction = transactions.get(i);
+      String error = errors[i];
+      BalanceKey key = new BalanceKey(transaction.getAccountId(), transaction.getCurrency());
+      Money balance = balances.get(key);
+      if (error == null && balance == null) {
+        error = getAccountById(transaction.getAccountId()).isEmpty()
+            ? "account is missing" : "no balance for given currency";
+      } else if (error == null && transaction.getDirection() != IN
+          && balance.compareTo(transaction.getAmount()) < 0) {
+        error = "insufficient funds";
+      }
+      if (error != null) {
+        results.add(BatchTransactionResult.rejected(error));
+        continue;
+      }
+      Money newBalance = transaction.getDirection() == IN
+          ? balance.plus(transaction.getAmount())
+          : balance.minus(transaction.getAmount());
+      balances.put(key, newBalance);
+      long version = locked.get(key).version() + postedCounts.merge(key, 1, Integer::sum);
+      CreateTransactionResponse response = createResponse(
+          transaction, new PostedTransaction(transaction.getId(), newBalance, version)
+      );
+      versions[posted.size()] = version;
+      posted.add(transaction);
+      responses.add(response);
+      results.add(BatchTransactionResult.posted(response));
+    }
+
+    if (!posted.isEmpty()) {
+      balanceStore.updateBalances(postedCounts.entrySet().stream()
+          .map(e -> new BalanceUpdate(
+              e.getKey().accountId(), e.getKey().currency(), balances.get(e.getKey()),
+              balances.get(e.getKey()).minus(locked.get(e.getKey()).balance()), e.getValue()
+          ))
+          .toList());
+      accountMapper.insertTransactions(posted);
+      postedCounts.keySet().stream().map(BalanceKey::accountId).distinct()
+          .forEach(accountCache::evictAfterCommit);
+      eventPublisher.transactionsPosted(responses, Arrays.copyOf(versions, posted.size()));
+    }
+    return new BatchTransactionResponse(results);
   }
 
-  private void decreaseBalance(Transaction transaction) throws TuumInvalidInputException {
-    AccountBalance accountBalance = accountMapper
-        .getBalanceForUpdate(transaction.getAccountId(), transaction.getCurrency());
-    if (isInsufficientFunds(transaction, accountBalance)) {
-      throw new TuumInvalidInputException("insufficient funds");
+  /**
+   * Returns a page of transactions for account, oldest first, from a replica when replicas are
+   * enabled.
+   *
+   * @param accountId id of the account
+   * @param cursor    cursor returned with the previous page, null for the first page
+   * @param limit     page size, capped at {@value #MAX_PAGE_SIZE}
+   * @return page of transactions with a cursor to the next page
+   * @throws TuumException when account does not exist or paging parameters are invalid
+   */
+  @Transactional(readOnly = true)
+  public TransactionPage getTransactionsByAccountId(UUID accountId, String cursor, int limit)
+      throws TuumException {
+    if (limit < 1) {
+      throw new TuumInvalidInputException("invalid limit");
+    }
+    int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+    TransactionCursor after = cursor == null ? null : decodeCursor(cursor);
+    if (getAccountById(accountId).isEmpty()) {
+      throw new TuumInvalidInputException("invalid account");
+    }
+    // one extra row tells whether there is a next page
+    List<Transaction> transactions =
+        accountMapper.getTransactionsByAccountId(accountId, after, pageSize + 1);
+    if (transactions.size() <= pageSize) {
+      return new TransactionPage(transactions, null);
     }
-    accountMapper.decreaseBalance(transaction.getAccountId(), transaction.getCurrency(),
-        transaction.getAmount());
+    List<Transaction> page = transactions.subList(0, pageSize);
+    return new TransactionPage(page, encodeCursor(page.get(pageSize - 1)));
   }
 
   /**
-   * Returns all transactions for account.
+   * Returns a posted transaction of the account, from a replica when replicas are enabled.
+   *
+   * @param accountId     id of the account
+   * @param transactionId id of the transaction
+   * @return the transaction, empty when the account has no transaction with the id
+   */
+  @Transactional(readOnly = true)
+  public Optional<CreateTransactionResponse> getTransaction(UUID accountId, UUID transactionId) {
+    return Optional.ofNullable(accountMapper.findTransactionById(accountId, transactionId));
+  }
+
+  /**
+   * Returns daily turnover of the account from the turnover rollup, the transaction history is
+   * not read. Days are UTC.
    *
    * @param accountId id of the account
-   * @return List of transactions, no paging.
-   * @throws TuumException when account does not exist
+   * @param from      first day, inclusive
+   * @param to        last day, inclusive, at most {@value #MAX_SUMMARY_DAYS} days after from
+   * @return turnover of the days with transactions
+   * @throws TuumException when account does not exist or the range is invalid
    */
-  public List<Transaction> getTransactionsByAccountId(UUID accountId) throws TuumException {
+  @Transactional(readOnly = true)
+  public AccountSummary getSummary(UUID accountId, LocalDate from, LocalDate to)
+      throws TuumException {
+    if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_SUMMARY_DAYS) {
+      throw new TuumInvalidInputException("invalid date range");
+    }
     if (getAccountById(accountId).isEmpty()) {
       throw new TuumInvalidInputException("invalid account");
     }
-    return accountMapper.getTransactionsByAccountId(accountId);
+    return new AccountSummary(accountId, from, to, accountMapper.getTurnover(accountId, from, to));
   }
 
-  private boolean isInsufficientFunds(Transaction transaction, AccountBalance accountBalance) {
-    return accountBalance.getBalance()
-        .subtract(transaction.getAmount())
-        .compareTo(BigDecimal.ZERO) < 0;
+  /**
+   * Passes all transactions of the account to the writer, oldest first. Transactions are fetched
+   * from the database in chunks, so memory use does not depend on the size of the history.
+   *
+   * @param accountId id of the account
+   * @param writer    receives transactions one by one
+   * @throws IOException when writer fails
+   */
+  @Transactional(readOnly = true)
+  public void exportTransactions(UUID accountId, TransactionWriter writer) throws IOException {
+    try (Cursor<Transaction> cursor = accountMapper.streamTransactionsByAccountId(accountId)) {
+      for (Transaction transaction : cursor) {
+        writer.write(transaction);
+      }
+    }
+  }
+
+  /**
+   * Cursor holds creation time in microseconds, the precision of Postgres timestamps, and id of
+   * the last transaction of the page.
+   */
+  private static String encodeCursor(Transaction transaction) {
+    Instant createdAt = transaction.getCreatedAt().toInstant();
+    return CURSOR_ENCODER.encodeToString(ByteBuffer.allocate(CURSOR_LENGTH)
+        .putLong(ChronoUnit.MICROS.between(Instant.EPOCH, createdAt))
+        .putLong(transaction.getId().getMostSignificantBits())
+        .putLong(transaction.getId().getLeastSignificantBits())
+        .array());
   }
 
-  private Transaction mapToTransaction(UUID accountId,
+  private static TransactionCursor decodeCursor(String cursor) throws TuumInvalidInputException {
+    byte[] bytes;
+    try {
+      bytes = CURSOR_DECODER.decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new TuumInvalidInputException("invalid cursor");
+    }
+    if (bytes.length != CURSOR_LENGTH) {
+      throw new TuumInvalidInputException("invalid cursor");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    OffsetDateTime createdAt = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS)
+        .atOffset(ZoneOffset.UTC);
+    return new TransactionCursor(createdAt, new UUID(buffer.getLong(), buffer.getLong()));
+  }
+
+  private Transaction mapToTransaction(UUID transactionId, UUID accountId,
                                        CreateTransactionRequest createTransactionRequest) {
+    Currency currency = Currency.fromCode(createTransactionRequest.currency());
+    return new Transaction(
+        transactionId, accountId, toMoney(createTransactionRequest.amount(), currency),
+        currency, createTransactionRequest.direction(),
+        createTransactionRequest.description(), null
+    );
+  }
+
+  private Transaction mapToTransaction(BatchTransactionItem item) {
+    Currency currency = Currency.fromCode(item.currency());
+    // ids are generated here, so that the whole batch is inserted without returning rows
     return new Transaction(
-        null, accountId, createTransactionRequest.amount(),
-        createTransactionRequest.currency(), createTransactionRequest.direction(),
-        createTransactionRequest.description()
+        UUID.randomUUID(), item.accountId(), toMoney(item.amount(), currency), currency,
+        item.direction(), item.description(), null
     );
   }
 
-  private CreateTransactionResponse createResponse(Transaction transaction, Account account) {
-    BigDecimal newBalance = findBalanceByCurrency(account, transaction.getCurrency())
-        .map(AccountBalance::getBalance).get(); // must be present
+  /**
+   * Converts requested amount, null when currency is not supported or the amount does not fit
+   * into the minor units of the currency. Both are rejected by validation.
+   */
+  private static Money toMoney(BigDecimal amount, Currency currency) {
+    if (amount == null || currency == null) {
+      return null;
+    }
+    try {
+      return Money.of(amount, currency);
+    } catch (ArithmeticException e) {
+      return null;
+    }
+  }
+
+  private CreateTransactionResponse createResponse(Transaction transaction,
+                                                   PostedTransaction posted) {
     return new CreateTransactionResponse(
-        transaction.getId(), transaction.getAccountId(), transaction.getAmount(),
+        posted.id(), transaction.getAccountId(), transaction.getAmount(),
         transaction.getCurrency(), transaction.getDirection(),
-        transaction.getDescription(), newBalance
+        transaction.getDescription(), posted.balance()
     );
   }
 
@@ -147,11 +429,17 @@ public class AccountService {
     if (findBalanceByCurrency(account.get(), transaction.getCurrency()).isEmpty()) {
       throw new TuumInvalidInputException("no balance for given currency");
     }
+    validateTransactionData(transaction);
+  }
+
+  private void validateTransactionData(Transaction transaction)
+      throws TuumInvalidInputException {
     if (transaction.getDescription() == null || transaction.getDescription().isBlank()) {
       throw new TuumInvalidInputException("description is missing");
     }
-    if (transaction.getAmount() == null
-        || transaction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+    // amount of an unsupported currency is rejected together with the missing balance
+    if (transaction.getCurrency() != null
+        && (transaction.getAmount() == null || !transaction.getAmount().isPositive())) {
       throw new TuumInvalidInputException("invalid amount");
     }
     if (transaction.getDirection() == null) {
@@ -159,8 +447,8 @@ public class AccountService {
     }
   }
 
-  private Optional<AccountBalance> findBalanceByCurrency(Account account, String currency) {
-    return account.getAccountBalances().stream().filter(it -> it.getCurrency().equals(currency))
+  private Optional<AccountBalance> findBalanceByCurrency(Account account, Currency currency) {
+    return account.getAccountBalances().stream().filter(it -> it.getCurrency() == currency)
         .findFirst();
   }
 
@@ -170,7 +458,7 @@ public class AccountService {
       throw new TuumInvalidInputException("currencies missing");
     }
     for (String currency : account.currencies()) {
-      if (!ALLOWED_CURRENCIES.contains(currency)) {
+      if (Currency.fromCode(currency) == null) {
         log.error("Invalid currency - {}", currency);
         throw new TuumInvalidInputException("invalid currency - " + currency);
       }
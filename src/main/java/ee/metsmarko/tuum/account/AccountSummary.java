@@ -0,0 +1,13 @@
+package ee.metsmarko.tuum.account;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Daily turnover of an account between two dates, inclusive. Days without transactions are
+ * left out.
+ */
+public record AccountSummary(UUID accountId, LocalDate from, LocalDate to,
+                             List<DailyTurnover> days) {
+}
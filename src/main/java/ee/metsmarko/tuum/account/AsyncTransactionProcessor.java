@@ -0,0 +1,205 @@
+package ee.metsmarko.tuum.account;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Posts transactions in the background. A submitted transaction gets its id right away and is
+ * queued to one of a fixed number of partitions by the hash of its account id. Every partition
+ * has a single worker that posts its transactions one by one through
+ * {@link AccountService#createTransaction}, so transactions of an account are posted in the order
+ * they were submitted and never wait on each other's balance lock.
+ *
+ * <p>Queues and statuses are kept in memory. When the service stops new transactions are refused
+ * and queued ones are posted, for as long as the longest partition takes at the mean post time.
+ * Statuses are kept for a limited time only, the status of an expired posted transaction is read
+ * from the database.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.async.enabled", havingValue = "true")
+public class AsyncTransactionProcessor implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(AsyncTransactionProcessor.class);
+  static final String CACHE_NAME = "async-transactions";
+  private final AccountService accountService;
+  private final List<BlockingQueue<PendingTransaction>> partitions = new ArrayList<>();
+  private final ExecutorService workers;
+  private final Cache<UUID, AsyncTransactionStatus> statuses;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Timer postTimer;
+  private final Duration shutdownTimeout;
+  private volatile boolean running = true;
+
+  public AsyncTransactionProcessor(
+      AccountService accountService, MeterRegistry meterRegistry,
+      @Value("${tuum.account.async.workers}") int workerCount,
+      @Value("${tuum.account.async.queue-capacity}") int queueCapacity,
+      @Value("${tuum.account.async.status-cache-size}") long statusCacheSize,
+      @Value("${tuum.account.async.status-time-to-live}") Duration statusTimeToLive,
+      @Value("${tuum.account.async.shutdown-timeout}") Duration shutdownTimeout
+  ) {
+    this.accountService = accountService;
+    this.shutdownTimeout = shutdownTimeout;
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerCount, runnable -> new Thread(
+        runnable, "async-transaction-" + threadNumber.incrementAndGet()
+    ));
+    for (int i = 0; i < workerCount; i++) {
+      BlockingQueue<PendingTransaction> partition = new ArrayBlockingQueue<>(queueCapacity);
+      partitions.add(partition);
+      workers.execute(() -> work(partition));
+    }
+    this.statuses = Caffeine.newBuilder()
+        .maximumSize(statusCacheSize)
+        .expireAfterWrite(statusTimeToLive)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, statuses, CACHE_NAME);
+    Gauge.builder("tuum.async.queued", queued, AtomicInteger::get)
+        .description("Transactions waiting for an async worker")
+        .register(meterRegistry);
+    this.postTimer = Timer.builder("tuum.async.post")
+        .description("Time an async worker takes to post a transaction")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Queues a transaction without validating it.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @return pending status with the id the transaction will be created with
+   * @throws TuumUnavailableException when the partition of the account is full or the service is
+   *                                  stopping
+   */
+  public AsyncTransactionStatus submit(
+      UUID accountId, CreateTransactionRequest createTransactionRequest
+  ) throws TuumUnavailableException {
+    AsyncTransactionStatus pending = AsyncTransactionStatus.pending(UUID.randomUUID(), accountId);
+    statuses.put(pending.transactionId(), pending);
+    queued.incrementAndGet();
+    BlockingQueue<PendingTransaction> partition =
+        partitions.get(Math.floorMod(accountId.hashCode(), partitions.size()));
+    PendingTransaction transaction =
+        new PendingTransaction(pending.transactionId(), accountId, createTransactionRequest);
+    if (!running) {
+      refuse(pending);
+      throw new TuumUnavailableException("service is stopping");
+    }
+    if (!partition.offer(transaction)) {
+      refuse(pending);
+      throw new TuumUnavailableException("too many pending transactions");
+    }
+    // a stop after the check may have let the worker go, a transaction it did not take is withdrawn
+    if (!running && partition.remove(transaction)) {
+      refuse(pending);
+      throw new TuumUnavailableException("service is stopping");
+    }
+    return pending;
+  }
+
+  /**
+   * Returns status of a submitted transaction. When the status has expired or was evicted, a
+   * transaction posted with the id is looked up from the database.
+   *
+   * @param accountId     account id the transaction was submitted for
+   * @param transactionId id returned by {@link #submit}
+   * @return status, empty when the transaction was not submitted for the account or its status
+   *     has expired before it was posted
+   */
+  public Optional<AsyncTransactionStatus> getStatus(UUID accountId, UUID transactionId) {
+    AsyncTransactionStatus status = statuses.getIfPresent(transactionId);
+    if (status != null) {
+      return Optional.of(status).filter(s -> s.accountId().equals(accountId));
+    }
+    return accountService.getTransaction(accountId, transactionId)
+        .map(AsyncTransactionStatus::posted);
+  }
+
+  /**
+   * Refuses new transactions and waits until the queued ones are posted. The wait is sized to
+   * the longest partition at twice the mean post time, but not shorter than
+   * {@code tuum.account.async.shutdown-timeout}.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    workers.shutdown();
+    Duration timeout = drainTimeout();
+    if (!workers.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+      log.error("Async transaction workers did not stop in {}, {} transactions are lost",
+          timeout, queued.get());
+      workers.shutdownNow();
+    }
+  }
+
+  Duration drainTimeout() {
+    int longest = partitions.stream().mapToInt(BlockingQueue::size).max().orElse(0);
+    long drainNanos = (long) (postTimer.mean(TimeUnit.NANOSECONDS) * 2 * longest);
+    Duration drain = Duration.ofNanos(drainNanos);
+    return drain.compareTo(shutdownTimeout) > 0 ? drain : shutdownTimeout;
+  }
+
+  private void refuse(AsyncTransactionStatus pending) {
+    queued.decrementAndGet();
+    statuses.invalidate(pending.transactionId());
+  }
+
+  private void work(BlockingQueue<PendingTransaction> partition) {
+    // the partition is drained before the worker stops
+    while (running || !partition.isEmpty()) {
+      PendingTransaction next;
+      try {
+        next = partition.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (next != null) {
+        queued.decrementAndGet();
+        statuses.put(next.transactionId(), postTimer.record(() -> post(next)));
+      }
+    }
+  }
+
+  private AsyncTransactionStatus post(PendingTransaction pending) {
+    try {
+      return AsyncTransactionStatus.posted(accountService.createTransaction(
+          pending.accountId(), pending.request(), null, pending.transactionId()
+      ));
+    } catch (TuumException e) {
+      return AsyncTransactionStatus.rejected(
+          pending.transactionId(), pending.accountId(), e.getMessage()
+      );
+    } catch (RuntimeException e) {
+      log.error("Async transaction {} failed", pending.transactionId(), e);
+      return AsyncTransactionStatus.failed(pending.transactionId(), pending.accountId());
+    }
+  }
+
+  private record PendingTransaction(UUID transactionId, UUID accountId,
+                                    CreateTransactionRequest request) {
+  }
+}
@@ -0,0 +1,34 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.UUID;
+
+/**
+ * State of a transaction submitted through {@link AsyncTransactionProcessor}. Holds the posted
+ * transaction once it is posted, or the reason it was not.
+ */
+public record AsyncTransactionStatus(UUID transactionId, UUID accountId, Status status,
+                                     CreateTransactionResponse transaction, String error) {
+  public enum Status {
+    PENDING, POSTED, REJECTED, FAILED
+  }
+
+  static AsyncTransactionStatus pending(UUID transactionId, UUID accountId) {
+    return new AsyncTransactionStatus(transactionId, accountId, Status.PENDING, null, null);
+  }
+
+  static AsyncTransactionStatus posted(CreateTransactionResponse transaction) {
+    return new AsyncTransactionStatus(
+        transaction.transactionId(), transaction.accountId(), Status.POSTED, transaction, null
+    );
+  }
+
+  static AsyncTransactionStatus rejected(UUID transactionId, UUID accountId, String error) {
+    return new AsyncTransactionStatus(transactionId, accountId, Status.REJECTED, null, error);
+  }
+
+  static AsyncTransactionStatus failed(UUID transactionId, UUID accountId) {
+    return new AsyncTransactionStatus(
+        transactionId, accountId, Status.FAILED, null, "transaction failed"
+    );
+  }
+}
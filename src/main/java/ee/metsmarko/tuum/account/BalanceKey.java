@@ -0,0 +1,9 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.UUID;
+
+/**
+ * Identifies a balance row of an account.
+ */
+public record BalanceKey(UUID accountId, Currency currency) {
+}
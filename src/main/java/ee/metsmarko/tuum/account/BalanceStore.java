@@ -0,0 +1,39 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps balances and stores the transactions that change them. The store is selected with
+ * {@code tuum.account.balance-mode}.
+ */
+public interface BalanceStore {
+
+  /**
+   * Increases balance and stores the transaction.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @return stored transaction with the balance right after it, see {@link PostedTransaction}
+   */
+  PostedTransaction credit(Transaction transaction, String idempotencyKey);
+
+  /**
+   * Decreases balance and stores the transaction.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @return stored transaction with the balance right after it, see {@link PostedTransaction},
+   *     null when funds are insufficient, nothing is changed then
+   */
+  PostedTransaction debit(Transaction transaction, String idempotencyKey);
+
+  /**
+   * Locks balances until the end of the transaction, in (account_id, currency) order. Balances
+   * that do not exist are missing from the result.
+   */
+  List<LockedBalance> lockBalances(Collection<BalanceKey> keys);
+
+  /**
+   * Stores new values of balances locked with {@link #lockBalances}.
+   */
+  void updateBalances(Collection<BalanceUpdate> updates);
+}
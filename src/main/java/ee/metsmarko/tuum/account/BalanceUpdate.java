@@ -0,0 +1,11 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.UUID;
+
+/**
+ * New value of a locked balance, the change from the locked value and the number of transactions
+ * that make up the change. The version of the balance grows by the number of transactions.
+ */
+public record BalanceUpdate(UUID accountId, Currency currency, Money balance, Money change,
+                            int transactions) {
+}
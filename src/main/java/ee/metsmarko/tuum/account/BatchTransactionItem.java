@@ -0,0 +1,8 @@
+package ee.metsmarko.tuum.account;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record BatchTransactionItem(UUID accountId, BigDecimal amount, String currency,
+                                   TransactionDirection direction, String description) {
+}
@@ -0,0 +1,6 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.List;
+
+public record BatchTransactionRequest(List<BatchTransactionItem> transactions) {
+}
@@ -0,0 +1,9 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.List;
+
+/**
+ * Results of a batch in the order of the request items.
+ */
+public record BatchTransactionResponse(List<BatchTransactionResult> results) {
+}
@@ -0,0 +1,14 @@
+package ee.metsmarko.tuum.account;
+
+/**
+ * Result of a single batch item, either the posted transaction or the reason it was rejected.
+ */
+public record BatchTransactionResult(CreateTransactionResponse transaction, String error) {
+  static BatchTransactionResult posted(CreateTransactionResponse transaction) {
+    return new BatchTransactionResult(transaction, null);
+  }
+
+  static BatchTransactionResult rejected(String error) {
+    return new BatchTransactionResult(null, error);
+  }
+}
@@ -1,10 +1,29 @@
 package ee.metsmarko.tuum.account;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
 import java.util.UUID;
 
-public record CreateTransactionResponse(UUID transactionId, UUID accountId, BigDecimal amount,
-                                        String currency,
+/**
+ * Created transaction with the balance of its currency right after it, see
+ * {@link PostedTransaction}. Transactions stored by earlier versions of the service without the
+ * balance read back with a null balance.
+ */
+public record CreateTransactionResponse(UUID transactionId, UUID accountId, Money amount,
+                                        Currency currency,
                                         TransactionDirection direction, String description,
-                                        BigDecimal currentBalance) {
+                                        Money currentBalance) {
+  @JsonCreator
+  CreateTransactionResponse(
+      @JsonProperty("transactionId") UUID transactionId,
+      @JsonProperty("accountId") UUID accountId, @JsonProperty("amount") BigDecimal amount,
+      @JsonProperty("currency") Currency currency,
+      @JsonProperty("direction") TransactionDirection direction,
+      @JsonProperty("description") String description,
+      @JsonProperty("currentBalance") BigDecimal currentBalance
+  ) {
+    this(transactionId, accountId, Money.of(amount, currency), currency, direction, description,
+        currentBalance == null ? null : Money.of(currentBalance, currency));
+  }
 }
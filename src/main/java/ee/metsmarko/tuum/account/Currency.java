@@ -0,0 +1,36 @@
+package ee.metsmarko.tuum.account;
+
+/**
+ * Currencies accounts can hold, with the number of decimals of their minor unit.
+ */
+public enum Currency {
+  EUR(2), SEK(2), GBP(2), USD(2);
+
+  private final int scale;
+
+  Currency(int scale) {
+    this.scale = scale;
+  }
+
+  public int scale() {
+    return scale;
+  }
+
+  /**
+   * Returns currency by its ISO 4217 code without allocating, unlike {@link #valueOf}.
+   *
+   * @return currency, null when code is not supported
+   */
+  public static Currency fromCode(String code) {
+    if (code == null) {
+      return null;
+    }
+    return switch (code) {
+      case "EUR" -> EUR;
+      case "SEK" -> SEK;
+      case "GBP" -> GBP;
+      case "USD" -> USD;
+      default -> null;
+    };
+  }
+}
@@ -0,0 +1,22 @@
+package ee.metsmarko.tuum.account;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sum and count of the transactions of one currency and UTC day, per direction.
+ */
+public record DailyTurnover(LocalDate day, Currency currency, Money inAmount, long inCount,
+                            Money outAmount, long outCount) {
+  @JsonCreator
+  DailyTurnover(
+      @JsonProperty("day") LocalDate day, @JsonProperty("currency") Currency currency,
+      @JsonProperty("inAmount") BigDecimal inAmount, @JsonProperty("inCount") long inCount,
+      @JsonProperty("outAmount") BigDecimal outAmount, @JsonProperty("outCount") long outCount
+  ) {
+    this(day, currency, Money.of(inAmount, currency), inCount, Money.of(outAmount, currency),
+        outCount);
+  }
+}
@@ -0,0 +1,248 @@
+package ee.metsmarko.tuum.account;
+
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import ee.metsmarko.tuum.exception.TuumUnavailableException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Merges concurrent transactions of the same balance into one database transaction. Every
+ * (account, currency) maps to one of a fixed number of lanes and each lane has at most one writer.
+ * While a writer posts a batch, new transactions of the lane queue up and are posted together with
+ * the next batch through {@link AccountService#createTransactions}, so a hot balance row is locked
+ * once per batch instead of once per transaction.
+ *
+ * <p>At most {@code tuum.account.group-commit.max-queued} transactions wait for a commit, more
+ * are refused. Transactions still queued when the service stops are not posted, they complete
+ * with {@link TuumUnavailableException}.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.group-commit.enabled", havingValue = "true")
+public class GroupCommitEngine implements DisposableBean {
+  private static final Logger log = LoggerFactory.getLogger(GroupCommitEngine.class);
+  private final AccountService accountService;
+  private final Lane[] lanes;
+  private final ExecutorService writers;
+  private final int maxBatchSize;
+  private final int maxQueued;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final DistributionSummary batchSizes;
+  private volatile boolean running = true;
+
+  public GroupCommitEngine(
+      AccountService accountService, MeterRegistry meterRegistry,
+      @Value("${tuum.account.group-commit.lanes}") int laneCount,
+      @Value("${tuum.account.group-commit.writer-threads}") int writerThreads,
+      @Value("${tuum.account.group-commit.max-batch-size}") int maxBatchSize,
+      @Value("${tuum.account.group-commit.max-queued}") int maxQueued
+  ) {
+    this.accountService = accountService;
+    this.lanes = new Lane[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new Lane();
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> new Thread(
+        runnable, "group-commit-" + threadNumber.incrementAndGet()
+    ));
+    this.maxBatchSize = Math.min(maxBatchSize, AccountService.MAX_BATCH_SIZE);
+    this.maxQueued = maxQueued;
+    Gauge.builder("tuum.group-commit.queued", queued, AtomicInteger::get)
+        .description("Transactions waiting for a group commit")
+        .register(meterRegistry);
+    this.batchSizes = DistributionSummary.builder("tuum.group-commit.batch.size")
+        .description("Transactions posted per group commit")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Creates a transaction as part of the next group commit of its lane and waits for the commit.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @return created transaction with the balance right after it
+   * @throws TuumException when validation fails or funds are insufficient
+   */
+  public CreateTransactionResponse createTransaction(
+      UUID accountId, CreateTransactionRequest createTransactionRequest
+  ) throws TuumException {
+    try {
+      return submit(accountId, createTransactionRequest).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for group commit", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TuumException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException("Group commit failed", e.getCause());
+    }
+  }
+
+  /**
+   * Queues a transaction for the next group commit of its lane without waiting for the commit.
+   * The returned future is completed on a writer thread, which still blocks on JDBC for the
+   * commit, the caller is only spared the wait.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @return completed with the created transaction, or with {@link TuumException} when
+   *     validation fails or funds are insufficient, or with {@link TuumUnavailableException} when
+   *     too many transactions are queued or the service is stopping
+   */
+  public CompletableFuture<CreateTransactionResponse> submit(
+      UUID accountId, CreateTransactionRequest createTransactionRequest
+  ) {
+    PendingTransaction pending = new PendingTransaction(
+        new BatchTransactionItem(
+            accountId, createTransactionRequest.amount(), createTransactionRequest.currency(),
+            createTransactionRequest.direction(), createTransactionRequest.description()
+        ),
+        new CompletableFuture<>()
+    );
+    BalanceKey key =
+        new BalanceKey(accountId, Currency.fromCode(createTransactionRequest.currency()));
+    if (!running) {
+      return CompletableFuture.failedFuture(stopping());
+    }
+    if (queued.incrementAndGet() > maxQueued) {
+      queued.decrementAndGet();
+      return CompletableFuture.failedFuture(
+          new TuumUnavailableException("too many pending transactions")
+      );
+    }
+    lanes[Math.floorMod(key.hashCode(), lanes.length)].submit(pending);
+    return pending.result();
+  }
+
+  /**
+   * Refuses new transactions and waits for batches being posted. Lanes can not schedule their
+   * next batch any more, transactions left in them are completed with
+   * {@link TuumUnavailableException}.
+   */
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    writers.shutdown();
+    if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+      log.error("Group commit writers did not stop in time");
+    }
+    for (Lane lane : lanes) {
+      lane.failQueued();
+    }
+  }
+
+  private static TuumUnavailableException stopping() {
+    return new TuumUnavailableException("service is stopping");
+  }
+
+  private void post(List<PendingTransaction> batch) {
+    batchSizes.record(batch.size());
+    List<BatchTransactionResult> results;
+    try {
+      results = accountService.createTransactions(new BatchTransactionRequest(
+          batch.stream().map(PendingTransaction::item).toList()
+      )).results();
+    } catch (Exception e) {
+      log.error("Group commit of {} transactions failed", batch.size(), e);
+      batch.forEach(pending -> pending.result().completeExceptionally(e));
+      return;
+    }
+    for (int i = 0; i < batch.size(); i++) {
+      BatchTransactionResult result = results.get(i);
+      if (result.error() == null) {
+        batch.get(i).result().complete(result.transaction());
+      } else {
+        batch.get(i).result().completeExceptionally(
+            new TuumInvalidInputException(result.error())
+        );
+      }
+    }
+  }
+
+  /**
+   * Queue of transactions with at most one writer. A writer posts one batch and schedules itself
+   * again while there is more work, so busy lanes do not starve the others.
+   */
+  private final class Lane implements Runnable {
+    private final Queue<PendingTransaction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    void submit(PendingTransaction pending) {
+      queue.add(pending);
+      if (scheduled.compareAndSet(false, true)) {
+        schedule();
+      }
+    }
+
+    @Override
+    public void run() {
+      List<PendingTransaction> batch = new ArrayList<>();
+      PendingTransaction next = queue.poll();
+      while (next != null) {
+        batch.add(next);
+        next = batch.size() < maxBatchSize ? queue.poll() : null;
+      }
+      if (!batch.isEmpty()) {
+        queued.addAndGet(-batch.size());
+        post(batch);
+        schedule();
+        return;
+      }
+      scheduled.set(false);
+      // a transaction queued after the poll above must not be left without a writer
+      if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+        schedule();
+      }
+    }
+
+    /**
+     * Writers refuse new work once they are shut down, the queued transactions then fail.
+     */
+    private void schedule() {
+      try {
+        writers.execute(this);
+      } catch (RejectedExecutionException e) {
+        failQueued();
+      }
+    }
+
+    void failQueued() {
+      scheduled.set(false);
+      PendingTransaction pending = queue.poll();
+      while (pending != null) {
+        queued.decrementAndGet();
+        pending.result().completeExceptionally(stopping());
+        pending = queue.poll();
+      }
+    }
+  }
+
+  private record PendingTransaction(BatchTransactionItem item,
+                                    CompletableFuture<CreateTransactionResponse> result) {
+  }
+}
@@ -0,0 +1,148 @@
+package ee.metsmarko.tuum.account;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Creates transactions at most once per idempotency key and account. A retried request gets the
+ * response of the original transaction from a cache of recent keys, or from the unique index on
+ * (account_id, idempotency_key), without locking the balance. Concurrent requests with the same
+ * key are resolved by the unique index, the losing request returns the winner's transaction.
+ *
+ * <p>Transactions without a key go through {@link GroupCommitEngine} when it is enabled. Callers
+ * of {@link #submitTransaction} are not blocked while the group commit is pending.
+ */
+@Service
+public class IdempotentTransactionService {
+  private static final Logger log = LoggerFactory.getLogger(IdempotentTransactionService.class);
+  static final int MAX_KEY_LENGTH = 255;
+  static final String CACHE_NAME = "idempotency-keys";
+  private final AccountService accountService;
+  private final AccountMapper accountMapper;
+  private final Optional<GroupCommitEngine> groupCommitEngine;
+  private final Cache<RecentKey, CreateTransactionResponse> recentKeys;
+
+  public IdempotentTransactionService(
+      AccountService accountService, AccountMapper accountMapper,
+      Optional<GroupCommitEngine> groupCommitEngine, MeterRegistry meterRegistry,
+      @Value("${tuum.account.idempotency.cache-size}") long cacheSize,
+      @Value("${tuum.account.idempotency.cache-time-to-live}") Duration cacheTimeToLive
+  ) {
+    this.accountService = accountService;
+    this.accountMapper = accountMapper;
+    this.groupCommitEngine = groupCommitEngine;
+    this.recentKeys = Caffeine.newBuilder()
+        .maximumSize(cacheSize)
+        .expireAfterWrite(cacheTimeToLive)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, recentKeys, CACHE_NAME);
+  }
+
+  /**
+   * Creates a new transaction unless one was already created with given idempotency key.
+   *
+   * @param accountId                account id on which transaction is performed
+   * @param createTransactionRequest transaction data
+   * @param idempotencyKey           client supplied key, null to always create a transaction
+   * @return created or previously created transaction
+   * @throws TuumException when validation fails or the key was used for a different transaction
+   */
+  public CreateTransactionResponse createTransaction(
+      UUID accountId, CreateTransactionRequest createTransactionRequest, String idempotencyKey
+  ) throws TuumException {
+    if (idempotencyKey == null && groupCommitEngine.isPresent()) {
+      return groupCommitEngine.get().createTransaction(accountId, createTransactionRequest);
+    }
+    if (idempotencyKey == null) {
+      return accountService.createTransaction(accountId, createTransactionRequest);
+    }
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+      throw new TuumInvalidInputException("invalid idempotency key");
+    }
+    RecentKey key = new RecentKey(accountId, idempotencyKey);
+    CreateTransactionResponse existing = findExisting(key);
+    if (existing != null) {
+      return verifySameTransaction(existing, createTransactionRequest);
+    }
+    try {
+      CreateTransactionResponse created =
+          accountService.createTransaction(accountId, createTransactionRequest, idempotencyKey);
+      recentKeys.put(key, created);
+      return created;
+    } catch (DuplicateKeyException e) {
+      log.info("Transaction with idempotency key {} was created concurrently", idempotencyKey);
+      existing = findExisting(key);
+      if (existing == null) {
+        throw e;
+      }
+      return verifySameTransaction(existing, createTransactionRequest);
+    }
+  }
+
+  /**
+   * Same as {@link #createTransaction}, but a transaction that goes through
+   * {@link GroupCommitEngine} does not block the caller until it is committed, the future is
+   * completed by a group commit writer thread that blocks on JDBC instead. Any other
+   * transaction, with a key or without group commit, is created on the calling thread and the
+   * returned future is already complete.
+   *
+   * @return completed with created or previously created transaction, or with
+   *     {@link TuumException} when the group commit rejects the transaction
+   * @throws TuumException when validation fails or the key was used for a different transaction
+   */
+  public CompletableFuture<CreateTransactionResponse> submitTransaction(
+      UUID accountId, CreateTransactionRequest createTransactionRequest, String idempotencyKey
+  ) throws TuumException {
+    if (idempotencyKey == null && groupCommitEngine.isPresent()) {
+      return groupCommitEngine.get().submit(accountId, createTransactionRequest);
+    }
+    return CompletableFuture.completedFuture(
+        createTransaction(accountId, createTransactionRequest, idempotencyKey)
+    );
+  }
+
+  private CreateTransactionResponse findExisting(RecentKey key) {
+    CreateTransactionResponse cached = recentKeys.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    CreateTransactionResponse stored =
+        accountMapper.findTransactionByIdempotencyKey(key.accountId(), key.idempotencyKey());
+    if (stored != null) {
+      recentKeys.put(key, stored);
+    }
+    return stored;
+  }
+
+  private static CreateTransactionResponse verifySameTransaction(
+      CreateTransactionResponse existing, CreateTransactionRequest request
+  ) throws TuumInvalidInputException {
+    boolean same = request.amount() != null
+        && existing.amount().toBigDecimal().compareTo(request.amount()) == 0
+        && existing.currency() == Currency.fromCode(request.currency())
+        && existing.direction() == request.direction()
+        && Objects.equals(existing.description(), request.description());
+    if (!same) {
+      throw new TuumInvalidInputException("idempotency key is used for a different transaction");
+    }
+    return existing;
+  }
+
+  private record RecentKey(UUID accountId, String idempotencyKey) {
+  }
+}
@@ -0,0 +1,17 @@
+package ee.metsmarko.tuum.account;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Balance row locked for update by a batch of transactions, with the number of its changes.
+ */
+public record LockedBalance(UUID accountId, Currency currency, Money balance, long version) {
+  LockedBalance(UUID accountId, Currency currency, BigDecimal balance, long version) {
+    this(accountId, currency, Money.of(balance, currency), version);
+  }
+
+  public BalanceKey key() {
+    return new BalanceKey(accountId, currency);
+  }
+}
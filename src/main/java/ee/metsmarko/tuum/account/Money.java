@@ -0,0 +1,64 @@
+package ee.metsmarko.tuum.account;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.math.BigDecimal;
+
+/**
+ * Amount of a currency in its minor units, e.g. cents. Arithmetic is done on longs and fails on
+ * overflow, {@link BigDecimal} is used only when reading and writing amounts. Serialized to JSON
+ * as a plain number, the same way a BigDecimal amount was.
+ */
+@JsonSerialize(using = MoneySerializer.class)
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+
+  public static Money zero(Currency currency) {
+    return new Money(0, currency);
+  }
+
+  /**
+   * Converts an amount in major units, e.g. euros.
+   *
+   * @throws ArithmeticException when amount has more decimals than the currency or does not fit
+   *     into a long
+   */
+  public static Money of(BigDecimal amount, Currency currency) {
+    return new Money(amount.movePointRight(currency.scale()).longValueExact(), currency);
+  }
+
+  public Money plus(Money other) {
+    return new Money(Math.addExact(minorUnits, sameCurrency(other).minorUnits), currency);
+  }
+
+  public Money minus(Money other) {
+    return new Money(Math.subtractExact(minorUnits, sameCurrency(other).minorUnits), currency);
+  }
+
+  public boolean isPositive() {
+    return minorUnits > 0;
+  }
+
+  public boolean isZero() {
+    return minorUnits == 0;
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(minorUnits, sameCurrency(other).minorUnits);
+  }
+
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(minorUnits, currency.scale());
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString() + " " + currency;
+  }
+
+  private Money sameCurrency(Money other) {
+    if (other.currency != currency) {
+      throw new IllegalArgumentException(other.currency + " amount used with " + currency);
+    }
+    return other;
+  }
+}
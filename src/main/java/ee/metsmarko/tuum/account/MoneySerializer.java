@@ -0,0 +1,42 @@
+package ee.metsmarko.tuum.account;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes {@link Money} as a JSON number with the scale of its currency, e.g. {@code 12.30}. Digits
+ * are written straight from the minor units without creating a BigDecimal.
+ */
+public class MoneySerializer extends StdSerializer<Money> {
+  // sign, 19 digits of a long, decimal point and leading zeros of small amounts
+  private static final int MAX_LENGTH = 32;
+
+  public MoneySerializer() {
+    super(Money.class);
+  }
+
+  @Override
+  public void serialize(Money value, JsonGenerator gen, SerializerProvider provider)
+      throws IOException {
+    char[] buffer = new char[MAX_LENGTH];
+    int scale = value.currency().scale();
+    int start = buffer.length;
+    // negative, so that Long.MIN_VALUE does not overflow
+    long rest = value.minorUnits() > 0 ? -value.minorUnits() : value.minorUnits();
+    int digits = 0;
+    do {
+      if (digits == scale && scale > 0) {
+        buffer[--start] = '.';
+      }
+      buffer[--start] = (char) ('0' - rest % 10);
+      rest /= 10;
+      digits++;
+    } while (rest != 0 || digits <= scale);
+    if (value.minorUnits() < 0) {
+      buffer[--start] = '-';
+    }
+    gen.writeNumber(buffer, start, buffer.length - start);
+  }
+}
@@ -0,0 +1,25 @@
+package ee.metsmarko.tuum.account;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Id of a stored transaction and the balance of its currency right after the transaction, with
+ * the version of the balance, the number of its changes including this one. A transaction that
+ * changed the balance without locking all of its rows does not see concurrent changes of the
+ * others, its balance is that at the time of its statement and its version is 0.
+ *
+ * <p>Lock wait is the time the statement that posted the transaction took until it had updated
+ * the balance row, mostly the wait for its lock. It is 0 when the statement locked no row or the
+ * lock was taken by an earlier statement, which is timed on its own.
+ */
+public record PostedTransaction(UUID id, Money balance, long version, long lockWaitNanos) {
+  public PostedTransaction(UUID id, Money balance, long version) {
+    this(id, balance, version, 0);
+  }
+
+  PostedTransaction(UUID id, Currency currency, BigDecimal balance, long version,
+                    long lockWaitNanos) {
+    this(id, Money.of(balance, currency), version, lockWaitNanos);
+  }
+}
@@ -0,0 +1,91 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps balances in account_balance rows that are updated in place, this is the default mode.
+ *
+ * <p>Balance of a currency is spread over {@code tuum.account.balance-slots} rows. Credits go to
+ * a random slot, debits to a slot with enough funds. When no single slot has enough funds, all
+ * slots are locked and the balance is moved to one slot. Debits skip slots locked by other
+ * transactions only when there are several slots, a single slot is waited for, so a contended
+ * balance is still debited with one statement. Before all slots of a balance are locked, its
+ * missing slot rows are created, so that no credit can create a slot row the update of the
+ * locked balance does not know of. With several slots other slots change
+ * concurrently, so transactions that change one slot are posted with the sum of the slots at the
+ * time of their statement and without a version.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "tuum.account.balance-mode", havingValue = "row", matchIfMissing = true
+)
+public class RowBalanceStore implements BalanceStore {
+  private final AccountMapper accountMapper;
+  private final int balanceSlots;
+
+  public RowBalanceStore(AccountMapper accountMapper,
+                         @Value("${tuum.account.balance-slots}") int balanceSlots) {
+    if (balanceSlots < 1) {
+      throw new IllegalArgumentException("balance slots must be at least 1");
+    }
+    this.accountMapper = accountMapper;
+    this.balanceSlots = balanceSlots;
+  }
+
+  @Override
+  public PostedTransaction credit(Transaction transaction, String idempotencyKey) {
+    return accountMapper.credit(transaction, idempotencyKey, randomSlot(), balanceSlots == 1);
+  }
+
+  @Override
+  public PostedTransaction debit(Transaction transaction, String idempotencyKey) {
+    PostedTransaction posted =
+        accountMapper.debit(transaction, idempotencyKey, randomSlot(), balanceSlots == 1);
+    return posted != null ? posted : debitAllSlots(transaction, idempotencyKey);
+  }
+
+  @Override
+  public List<LockedBalance> lockBalances(Collection<BalanceKey> keys) {
+    if (balanceSlots > 1) {
+      accountMapper.createBalanceSlots(keys, balanceSlots);
+    }
+    return accountMapper.lockBalances(keys);
+  }
+
+  @Override
+  public void updateBalances(Collection<BalanceUpdate> updates) {
+    accountMapper.updateBalances(updates);
+  }
+
+  private int randomSlot() {
+    return ThreadLocalRandom.current().nextInt(balanceSlots);
+  }
+
+  private PostedTransaction debitAllSlots(Transaction transaction, String idempotencyKey) {
+    List<LockedBalance> locked = lockBalances(
+        Set.of(new BalanceKey(transaction.getAccountId(), transaction.getCurrency()))
+    );
+    if (locked.isEmpty() || locked.get(0).balance().compareTo(transaction.getAmount()) < 0) {
+      return null;
+    }
+    Money balance = locked.get(0).balance().minus(transaction.getAmount());
+    accountMapper.updateBalances(List.of(new BalanceUpdate(
+        transaction.getAccountId(), transaction.getCurrency(), balance,
+        balance.minus(locked.get(0).balance()), 1
+    )));
+    Transaction withId = new Transaction(
+        transaction.getId() != null ? transaction.getId() : UUID.randomUUID(),
+        transaction.getAccountId(), transaction.getAmount(),
+        transaction.getCurrency(), transaction.getDirection(), transaction.getDescription(), null
+    );
+    accountMapper.insertTransaction(withId, idempotencyKey, balance);
+    return new PostedTransaction(withId.getId(), balance, locked.get(0).version() + 1);
+  }
+}
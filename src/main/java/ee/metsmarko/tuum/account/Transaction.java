@@ -1,19 +1,30 @@
 package ee.metsmarko.tuum.account;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.UUID;
+import org.apache.ibatis.annotations.AutomapConstructor;
 
 public class Transaction {
   private final UUID id;
   private final UUID accountId;
-  private final BigDecimal amount;
-  private final String currency;
+  private final Money amount;
+  private final Currency currency;
   private final TransactionDirection direction;
   private final String description;
+  private final OffsetDateTime createdAt;
 
+  /**
+   * Creates a transaction.
+   *
+   * @param createdAt time the transaction was stored, null when it is not stored yet
+   */
   public Transaction(
-      UUID id, UUID accountId, BigDecimal amount,
-      String currency, TransactionDirection direction, String description
+      UUID id, UUID accountId, Money amount,
+      Currency currency, TransactionDirection direction, String description,
+      OffsetDateTime createdAt
   ) {
     this.id = id;
     this.accountId = accountId;
@@ -21,6 +32,19 @@ public class Transaction {
     this.currency = currency;
     this.direction = direction;
     this.description = description;
+    this.createdAt = createdAt;
+  }
+
+  @JsonCreator
+  @AutomapConstructor
+  Transaction(
+      @JsonProperty("id") UUID id, @JsonProperty("accountId") UUID accountId,
+      @JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") Currency currency,
+      @JsonProperty("direction") TransactionDirection direction,
+      @JsonProperty("description") String description,
+      @JsonProperty("createdAt") OffsetDateTime createdAt
+  ) {
+    this(id, accountId, Money.of(amount, currency), currency, direction, description, createdAt);
   }
 
   public UUID getId() {
@@ -31,11 +55,11 @@ public class Transaction {
     return accountId;
   }
 
-  public BigDecimal getAmount() {
+  public Money getAmount() {
     return amount;
   }
 
-  public String getCurrency() {
+  public Currency getCurrency() {
     return currency;
   }
 
@@ -46,4 +70,8 @@ public class Transaction {
   public String getDescription() {
     return description;
   }
+
+  public OffsetDateTime getCreatedAt() {
+    return createdAt;
+  }
 }
@@ -0,0 +1,10 @@
+package ee.metsmarko.tuum.account;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Position in the transaction history of an account, history continues after this transaction.
+ */
+public record TransactionCursor(OffsetDateTime createdAt, UUID id) {
+}
@@ -0,0 +1,9 @@
+package ee.metsmarko.tuum.account;
+
+import java.util.List;
+
+/**
+ * A page of transactions. {@code nextCursor} is null when there are no more transactions.
+ */
+public record TransactionPage(List<Transaction> transactions, String nextCursor) {
+}
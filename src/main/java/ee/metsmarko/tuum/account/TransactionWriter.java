@@ -0,0 +1,11 @@
+package ee.metsmarko.tuum.account;
+
+import java.io.IOException;
+
+/**
+ * Receives transactions streamed by {@link AccountService#exportTransactions}.
+ */
+@FunctionalInterface
+public interface TransactionWriter {
+  void write(Transaction transaction) throws IOException;
+}
@@ -2,33 +2,59 @@ package ee.metsmarko.tuum.account.event;
 
 import static ee.metsmarko.tuum.account.TransactionDirection.IN;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import ee.metsmarko.tuum.account.Account;
 import ee.metsmarko.tuum.account.CreateTransactionResponse;
 import ee.metsmarko.tuum.account.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.core.Exchange;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+/**
+ * Serializes account events with the configured {@link EventCodec} and hands them to the
+ * configured {@link EventSink}. Both sinks publish only after the caller's transaction commits, so
+ * a rolled back change never publishes an event and the broker is never called while the caller
+ * holds database locks.
+ *
+ * <p>Events that can not be serialized are counted and dead-lettered with their
+ * {@code toString()} under the routing key prefixed with {@value #DEAD_LETTER_KEY_PREFIX}.
+ * Serialization and the hand-off to the sink are timed separately, as
+ * {@code tuum.events.serialization} and {@code tuum.events.publish}.
+ */
 @Service
 public class AccountEventPublisher {
   private static final Logger log = LoggerFactory.getLogger(AccountEventPublisher.class);
-  private final RabbitTemplate template;
-  private final Exchange exchange;
-  private final ObjectMapper mapper;
+  public static final String DEAD_LETTER_KEY_PREFIX = "dead-letter.";
+  private final EventSink eventSink;
+  private final EventCodec codec;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Timer> serializationTimers = new ConcurrentHashMap<>();
+  private final Timer publishTimer;
 
-  private static final String NEW_ACCOUNT_KEY = "account.create";
+  public static final String NEW_ACCOUNT_KEY = "account.create";
   private static final String NEW_TX_KEY = "account.transaction.create";
   private static final String BALANCE_INCREASED_KEY = "account.balance.increase";
   private static final String BALANCE_DECREASED_KEY = "account.balance.decrease";
 
-  public AccountEventPublisher(RabbitTemplate template, Exchange exchange, ObjectMapper mapper) {
-    this.template = template;
-    this.exchange = exchange;
-    this.mapper = mapper;
+  public AccountEventPublisher(
+      EventSink eventSink, EventCodec codec, MeterRegistry meterRegistry
+  ) {
+    this.eventSink = eventSink;
+    this.codec = codec;
+    this.meterRegistry = meterRegistry;
+    this.publishTimer = Timer.builder("tuum.events.publish")
+        .description("Time spent handing events to the event sink")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
   }
 
   public void accountCreated(Account account) {
@@ -45,18 +71,78 @@ public class AccountEventPublisher {
     );
   }
 
-  public void balanceChanged(CreateTransactionResponse res) {
-    publishEvent(
-        res.direction() == IN ? BALANCE_INCREASED_KEY : BALANCE_DECREASED_KEY,
-        new BalanceChangeEvent(res.accountId(), res.currency(), res.amount(), res.currentBalance())
+  /**
+   * Publishes the balance change of a transaction.
+   *
+   * @param version version of the balance after the transaction
+   */
+  public void balanceChanged(CreateTransactionResponse res, long version) {
+    publishEvent(balanceChangeKey(res), balanceChangeEvent(res, version));
+  }
+
+  /**
+   * Publishes transaction created and balance changed events of all transactions with a single
+   * hand-off to the sink.
+   *
+   * @param versions version of the balance after each transaction, in the same order
+   */
+  public void transactionsPosted(List<CreateTransactionResponse> transactions, long[] versions) {
+    List<EventMessage> messages = new ArrayList<>(transactions.size() * 2);
+    for (int i = 0; i < transactions.size(); i++) {
+      CreateTransactionResponse res = transactions.get(i);
+      messages.add(toMessage(NEW_TX_KEY, new TransactionCreateEvent(
+          res.transactionId(), res.accountId(), res.amount(), res.currency(), res.direction()
+      )));
+      messages.add(toMessage(balanceChangeKey(res), balanceChangeEvent(res, versions[i])));
+    }
+    handOff(messages);
+  }
+
+  private static String balanceChangeKey(CreateTransactionResponse res) {
+    return res.direction() == IN ? BALANCE_INCREASED_KEY : BALANCE_DECREASED_KEY;
+  }
+
+  private static BalanceChangeEvent balanceChangeEvent(CreateTransactionResponse res,
+                                                       long version) {
+    return new BalanceChangeEvent(
+        res.accountId(), res.currency(), res.amount(), res.currentBalance(), version
     );
   }
 
   private void publishEvent(String key, Object event) {
+    handOff(List.of(toMessage(key, event)));
+  }
+
+  private void handOff(List<EventMessage> messages) {
+    long start = System.nanoTime();
+    try {
+      eventSink.publish(messages);
+    } catch (RuntimeException e) {
+      meterRegistry.counter(
+          "tuum.events.publish.errors", "exception", e.getClass().getSimpleName()
+      ).increment();
+      throw e;
+    } finally {
+      publishTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private EventMessage toMessage(String key, Object event) {
+    Timer timer = serializationTimers.computeIfAbsent(key, k -> Timer.builder(
+        "tuum.events.serialization"
+    ).tag("key", k).register(meterRegistry));
+    long start = System.nanoTime();
     try {
-      template.convertAndSend(exchange.getName(), key, mapper.writeValueAsBytes(event));
-    } catch (JsonProcessingException e) {
-      log.error("Error serializing event");
+      return new EventMessage(key, codec.contentType(), codec.encode(event));
+    } catch (IOException e) {
+      log.error("Error serializing event {}, dead-lettering it", key, e);
+      meterRegistry.counter("tuum.events.serialization.errors", "key", key).increment();
+      return new EventMessage(
+          DEAD_LETTER_KEY_PREFIX + key, MediaType.TEXT_PLAIN_VALUE,
+          event.toString().getBytes(StandardCharsets.UTF_8)
+      );
+    } finally {
+      timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
     }
   }
 }
@@ -0,0 +1,210 @@
+package ee.metsmarko.tuum.account.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Publishes events from a bounded in-memory queue after the caller's transaction commits. Each
+ * publisher thread keeps its own channel and sends the queued events in batches with correlated
+ * confirms, events that are not confirmed are queued again.
+ *
+ * <p>Unlike {@link OutboxEventSink} events are lost when the queue is full or the service stops
+ * before they are confirmed, both are logged and counted.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.events.delivery", havingValue = "async")
+public class AsyncEventSink implements EventSink, SmartLifecycle {
+  private static final Logger log = LoggerFactory.getLogger(AsyncEventSink.class);
+  private static final long POLL_TIMEOUT_MS = 100;
+  private static final long RECONNECT_DELAY_MS = 1000;
+  private final BlockingQueue<PendingEvent> queue;
+  private final RabbitTemplate template;
+  private final ConfirmedPublisher publisher;
+  private final int publisherThreads;
+  private final int batchSize;
+  private final int maxAttempts;
+  private final long shutdownTimeoutMs;
+  private final Counter droppedEvents;
+  private final Counter failedEvents;
+  private final Counter retriedEvents;
+  private volatile boolean running;
+  private ExecutorService executor;
+
+  public AsyncEventSink(
+      RabbitTemplate template, ConfirmedPublisher publisher, MeterRegistry meterRegistry,
+      @Value("${tuum.account.events.async.queue-capacity}") int queueCapacity,
+      @Value("${tuum.account.events.async.publisher-threads}") int publisherThreads,
+      @Value("${tuum.account.events.async.batch-size}") int batchSize,
+      @Value("${tuum.account.events.async.max-attempts}") int maxAttempts,
+      @Value("${tuum.account.events.async.shutdown-timeout-ms}") long shutdownTimeoutMs
+  ) {
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.template = template;
+    this.publisher = publisher;
+    this.publisherThreads = publisherThreads;
+    this.batchSize = batchSize;
+    this.maxAttempts = maxAttempts;
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    Gauge.builder("tuum.events.queue.depth", queue, BlockingQueue::size)
+        .description("Events waiting to be published")
+        .register(meterRegistry);
+    this.droppedEvents = meterRegistry.counter("tuum.events.dropped");
+    this.failedEvents = meterRegistry.counter("tuum.events.failed");
+    this.retriedEvents = meterRegistry.counter("tuum.events.retried");
+  }
+
+  @Override
+  public void publish(List<EventMessage> messages) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      enqueue(messages);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        enqueue(messages);
+      }
+    });
+  }
+
+  private void enqueue(List<EventMessage> messages) {
+    for (EventMessage message : messages) {
+      if (!queue.offer(new PendingEvent(message, 1))) {
+        droppedEvents.increment();
+        log.error("Event queue is full, dropping event {}", message.routingKey());
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    AtomicInteger threadNumber = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(publisherThreads, runnable -> {
+      Thread thread = new Thread(runnable, "event-publisher-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (int i = 0; i < publisherThreads; i++) {
+      executor.execute(this::runPublisher);
+    }
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+        log.error("Event publishers did not stop in time, {} events lost", queue.size());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private boolean hasWork() {
+    return running || !queue.isEmpty();
+  }
+
+  /**
+   * Publishes until stopped and the queue is drained, or until the thread is interrupted.
+   */
+  private void runPublisher() {
+    while (hasWork() && !Thread.currentThread().isInterrupted()) {
+      try {
+        template.invoke(operations -> {
+          publishUntilStopped(operations);
+          return null;
+        });
+      } catch (AmqpException e) {
+        log.error("Event publisher failed, reconnecting", e);
+        sleep(RECONNECT_DELAY_MS);
+      }
+    }
+  }
+
+  private void publishUntilStopped(RabbitOperations operations) {
+    List<PendingEvent> batch = new ArrayList<>(batchSize);
+    List<EventMessage> messages = new ArrayList<>(batchSize);
+    while (hasWork()) {
+      PendingEvent first;
+      try {
+        first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (first == null) {
+        continue;
+      }
+      batch.add(first);
+      queue.drainTo(batch, batchSize - 1);
+      for (PendingEvent event : batch) {
+        messages.add(event.message());
+      }
+      boolean[] confirmed;
+      try {
+        confirmed = publisher.publish(operations, messages);
+      } catch (AmqpException e) {
+        batch.forEach(this::retry);
+        throw e;
+      } finally {
+        messages.clear();
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        if (!confirmed[i]) {
+          retry(batch.get(i));
+        }
+      }
+      batch.clear();
+    }
+  }
+
+  private void retry(PendingEvent event) {
+    if (event.attempt() < maxAttempts
+        && queue.offer(new PendingEvent(event.message(), event.attempt() + 1))) {
+      retriedEvents.increment();
+      return;
+    }
+    failedEvents.increment();
+    log.error("Giving up publishing event {} after {} attempts",
+        event.message().routingKey(), event.attempt());
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private record PendingEvent(EventMessage message, int attempt) {
+  }
+}
@@ -1,8 +1,31 @@
 package ee.metsmarko.tuum.account.event;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
 import java.math.BigDecimal;
 import java.util.UUID;
 
-public record BalanceChangeEvent(UUID accountId, String currency, BigDecimal amount,
-                                 BigDecimal newBalance) {
+/**
+ * Change of a balance. Version is the number of changes of the balance including this one, so
+ * consumers can tell a missed or repeated event from the version they have seen last. Events of
+ * older producers have no version, it is 0 then. Transactions that changed the balance without
+ * locking all of its rows, see {@link ee.metsmarko.tuum.account.PostedTransaction}, have the
+ * balance at the time of their statement and version 0. Older producers sent no new balance for
+ * them.
+ */
+public record BalanceChangeEvent(UUID accountId, Currency currency, Money amount,
+                                 Money newBalance, long version) {
+  @JsonCreator
+  BalanceChangeEvent(
+      @JsonProperty("accountId") UUID accountId, @JsonProperty("currency") Currency currency,
+      @JsonProperty("amount") BigDecimal amount,
+      @JsonProperty("newBalance") BigDecimal newBalance, @JsonProperty("version") long version
+  ) {
+    this(
+        accountId, currency, Money.of(amount, currency),
+        newBalance == null ? null : Money.of(newBalance, currency), version
+    );
+  }
 }
@@ -0,0 +1,178 @@
+package ee.metsmarko.tuum.account.event;
+
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.TransactionDirection;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serializes events in a compact big-endian binary format:
+ * <pre>
+ * event    = version:u8 type:u8 fields
+ * type 1   = accountId:uuid                                   (AccountCreateEvent)
+ * type 2   = transactionId:uuid accountId:uuid amount currency direction:u8
+ *                                                             (TransactionCreateEvent)
+ * type 3   = accountId:uuid currency amount newBalance:balance version:i64
+ *                                                             (BalanceChangeEvent)
+ * uuid     = 16 bytes, most significant first
+ * amount   = scale:i8 unscaledValue:i64, scale is the scale of the currency
+ * balance  = amount, or -1:i8 when the balance is not known
+ * currency = code:u8, a code of {@link #CURRENCIES} or 0 followed by 3 ASCII letters
+ * </pre>
+ * Direction is 0 for IN and 1 for OUT. Currency codes are never renumbered, new currencies are
+ * appended. Version 1 of the format had no version of the balance in type 3, such events are
+ * still decoded with version 0. Version 2 always had a new balance. Events are encoded in a
+ * buffer reused by the thread, only the result is allocated.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.events.format", havingValue = "binary")
+public class BinaryEventCodec implements EventCodec {
+  public static final String CONTENT_TYPE = "application/vnd.tuum.account-event";
+  static final byte VERSION = 3;
+  private static final byte UNKNOWN_BALANCE = -1;
+  static final byte ACCOUNT_CREATED = 1;
+  static final byte TRANSACTION_CREATED = 2;
+  static final byte BALANCE_CHANGED = 3;
+  // index + 1 is the code of a currency
+  static final List<Currency> CURRENCIES =
+      List.of(Currency.EUR, Currency.SEK, Currency.GBP, Currency.USD);
+  private static final int MAX_EVENT_SIZE = 64;
+  private final ThreadLocal<ByteBuffer> buffers =
+      ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAX_EVENT_SIZE));
+
+  @Override
+  public String contentType() {
+    return CONTENT_TYPE;
+  }
+
+  @Override
+  public byte[] encode(Object event) throws IOException {
+    ByteBuffer buffer = buffers.get().clear();
+    buffer.put(VERSION);
+    if (event instanceof AccountCreateEvent e) {
+      buffer.put(ACCOUNT_CREATED);
+      putUuid(buffer, e.accountId());
+    } else if (event instanceof TransactionCreateEvent e) {
+      buffer.put(TRANSACTION_CREATED);
+      putUuid(buffer, e.transactionId());
+      putUuid(buffer, e.accountId());
+      putAmount(buffer, e.amount());
+      putCurrency(buffer, e.currency());
+      buffer.put((byte) (e.direction() == TransactionDirection.IN ? 0 : 1));
+    } else if (event instanceof BalanceChangeEvent e) {
+      buffer.put(BALANCE_CHANGED);
+      putUuid(buffer, e.accountId());
+      putCurrency(buffer, e.currency());
+      putAmount(buffer, e.amount());
+      putBalance(buffer, e.newBalance());
+      buffer.putLong(e.version());
+    } else {
+      throw new IOException("unsupported event " + event.getClass().getSimpleName());
+    }
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+
+  /**
+   * Decodes an event encoded by {@link #encode}.
+   *
+   * @throws IOException when payload is not a valid event of a supported version
+   */
+  public Object decode(byte[] payload) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(payload);
+    try {
+      byte version = buffer.get();
+      if (version < 1 || version > VERSION) {
+        throw new IOException("unsupported version " + version);
+      }
+      byte type = buffer.get();
+      // amounts are read before the currency of the event is known
+      Object event = switch (type) {
+        case ACCOUNT_CREATED -> new AccountCreateEvent(getUuid(buffer));
+        case TRANSACTION_CREATED -> new TransactionCreateEvent(
+            getUuid(buffer), getUuid(buffer), getAmount(buffer), getCurrency(buffer),
+            buffer.get() == 0 ? TransactionDirection.IN : TransactionDirection.OUT
+        );
+        case BALANCE_CHANGED -> new BalanceChangeEvent(
+            getUuid(buffer), getCurrency(buffer), getAmount(buffer),
+            version > 2 ? getBalance(buffer) : getAmount(buffer),
+            version > 1 ? buffer.getLong() : 0
+        );
+        default -> throw new IOException("unsupported event type " + type);
+      };
+      if (buffer.hasRemaining()) {
+        throw new IOException("trailing bytes after event");
+      }
+      return event;
+    } catch (BufferUnderflowException e) {
+      throw new IOException("truncated event", e);
+    } catch (ArithmeticException e) {
+      throw new IOException("amount does not fit its currency", e);
+    }
+  }
+
+  private static void putUuid(ByteBuffer buffer, UUID uuid) {
+    buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+  }
+
+  private static UUID getUuid(ByteBuffer buffer) {
+    return new UUID(buffer.getLong(), buffer.getLong());
+  }
+
+  private static void putAmount(ByteBuffer buffer, Money amount) {
+    buffer.put((byte) amount.currency().scale()).putLong(amount.minorUnits());
+  }
+
+  private static BigDecimal getAmount(ByteBuffer buffer) {
+    int scale = buffer.get();
+    return BigDecimal.valueOf(buffer.getLong(), scale);
+  }
+
+  private static void putBalance(ByteBuffer buffer, Money balance) {
+    if (balance == null) {
+      buffer.put(UNKNOWN_BALANCE);
+      return;
+    }
+    putAmount(buffer, balance);
+  }
+
+  private static BigDecimal getBalance(ByteBuffer buffer) {
+    int scale = buffer.get();
+    return scale == UNKNOWN_BALANCE ? null : BigDecimal.valueOf(buffer.getLong(), scale);
+  }
+
+  private static void putCurrency(ByteBuffer buffer, Currency currency) {
+    int index = CURRENCIES.indexOf(currency);
+    if (index >= 0) {
+      buffer.put((byte) (index + 1));
+      return;
+    }
+    buffer.put((byte) 0).put(currency.name().getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static Currency getCurrency(ByteBuffer buffer) throws IOException {
+    int code = Byte.toUnsignedInt(buffer.get());
+    if (code == 0) {
+      byte[] letters = new byte[3];
+      buffer.get(letters);
+      String name = new String(letters, StandardCharsets.US_ASCII);
+      Currency currency = Currency.fromCode(name);
+      if (currency == null) {
+        throw new IOException("unsupported currency " + name);
+      }
+      return currency;
+    }
+    if (code > CURRENCIES.size()) {
+      throw new IOException("unknown currency code " + code);
+    }
+    return CURRENCIES.get(code - 1);
+  }
+}
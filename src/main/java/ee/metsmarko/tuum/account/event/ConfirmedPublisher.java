@@ -0,0 +1,103 @@
+package ee.metsmarko.tuum.account.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Exchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes batches of events with correlated publisher confirms. All messages of a batch are
+ * sent before waiting for the first confirm, so a batch costs roughly one broker round trip. The
+ * content type of an event is sent as the AMQP {@code content-type} property.
+ */
+@Component
+public class ConfirmedPublisher {
+  private static final Logger log = LoggerFactory.getLogger(ConfirmedPublisher.class);
+  private final Exchange exchange;
+  private final Duration confirmTimeout;
+  private final Timer confirmLatency;
+  private final Counter nacked;
+  private final Counter timedOut;
+
+  public ConfirmedPublisher(
+      Exchange exchange, @Value("${tuum.account.events.confirm-timeout}") Duration confirmTimeout,
+      MeterRegistry meterRegistry
+  ) {
+    this.exchange = exchange;
+    this.confirmTimeout = confirmTimeout;
+    this.confirmLatency = Timer.builder("tuum.events.confirm.latency")
+        .description("Time from sending an event until the broker confirms it")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    this.nacked = meterRegistry.counter("tuum.events.unconfirmed", "reason", "nack");
+    this.timedOut = meterRegistry.counter("tuum.events.unconfirmed", "reason", "timeout");
+  }
+
+  /**
+   * Sends messages on the channel of given operations and waits for their confirms.
+   *
+   * @param operations operations bound to a single channel, see {@code RabbitTemplate.invoke}
+   * @param messages   messages to send
+   * @return for each message, in order, whether it was confirmed by the broker
+   */
+  public boolean[] publish(RabbitOperations operations, List<EventMessage> messages) {
+    List<CorrelationData> correlations = new ArrayList<>(messages.size());
+    for (EventMessage message : messages) {
+      CorrelationData correlation = new CorrelationData();
+      long sentAt = System.nanoTime();
+      correlation.getFuture().addCallback(
+          confirm -> confirmLatency.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS),
+          e -> { }
+      );
+      operations.send(exchange.getName(), message.routingKey(), toAmqp(message), correlation);
+      correlations.add(correlation);
+    }
+    return awaitConfirms(messages, correlations);
+  }
+
+  private static Message toAmqp(EventMessage message) {
+    MessageProperties properties = new MessageProperties();
+    properties.setContentType(message.contentType());
+    properties.setContentLength(message.payload().length);
+    return new Message(message.payload(), properties);
+  }
+
+  private boolean[] awaitConfirms(List<EventMessage> messages,
+                                  List<CorrelationData> correlations) {
+    boolean[] confirmed = new boolean[messages.size()];
+    long deadline = System.nanoTime() + confirmTimeout.toNanos();
+    for (int i = 0; i < messages.size(); i++) {
+      try {
+        CorrelationData.Confirm confirm = correlations.get(i).getFuture()
+            .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        confirmed[i] = confirm.isAck();
+        if (!confirm.isAck()) {
+          nacked.increment();
+          log.warn("Event {} was not confirmed: {}", messages.get(i).routingKey(),
+              confirm.getReason());
+        }
+      } catch (ExecutionException | TimeoutException e) {
+        timedOut.increment();
+        log.warn("Event {} was not confirmed: {}", messages.get(i).routingKey(), e.toString());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    return confirmed;
+  }
+}
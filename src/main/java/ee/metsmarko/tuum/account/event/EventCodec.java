@@ -0,0 +1,13 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.io.IOException;
+
+/**
+ * Serializes account events. The format is selected with {@code tuum.account.events.format} and
+ * published as the AMQP {@code content-type} of each message, so consumers can tell formats apart.
+ */
+public interface EventCodec {
+  String contentType();
+
+  byte[] encode(Object event) throws IOException;
+}
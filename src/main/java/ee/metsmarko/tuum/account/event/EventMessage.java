@@ -0,0 +1,7 @@
+package ee.metsmarko.tuum.account.event;
+
+/**
+ * Serialized event together with the routing key and content type it is published with.
+ */
+public record EventMessage(String routingKey, String contentType, byte[] payload) {
+}
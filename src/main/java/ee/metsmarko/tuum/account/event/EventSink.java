@@ -0,0 +1,11 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.util.List;
+
+/**
+ * Destination of serialized account events. Implementations must not publish events of a
+ * transaction that is rolled back.
+ */
+public interface EventSink {
+  void publish(List<EventMessage> messages);
+}
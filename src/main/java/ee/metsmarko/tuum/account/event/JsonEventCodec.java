@@ -0,0 +1,32 @@
+package ee.metsmarko.tuum.account.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serializes events as JSON, this is the default format.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "tuum.account.events.format", havingValue = "json", matchIfMissing = true
+)
+public class JsonEventCodec implements EventCodec {
+  private final ObjectMapper mapper;
+
+  public JsonEventCodec(ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  @Override
+  public String contentType() {
+    return MediaType.APPLICATION_JSON_VALUE;
+  }
+
+  @Override
+  public byte[] encode(Object event) throws JsonProcessingException {
+    return mapper.writeValueAsBytes(event);
+  }
+}
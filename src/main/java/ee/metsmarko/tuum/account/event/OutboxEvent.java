@@ -0,0 +1,10 @@
+package ee.metsmarko.tuum.account.event;
+
+/**
+ * Event stored in the outbox table, waiting to be published.
+ */
+public record OutboxEvent(long id, String routingKey, String contentType, byte[] payload) {
+  public EventMessage message() {
+    return new EventMessage(routingKey, contentType, payload);
+  }
+}
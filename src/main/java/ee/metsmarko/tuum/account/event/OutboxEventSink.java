@@ -0,0 +1,26 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes events to the outbox table in the caller's transaction, {@link OutboxRelay} publishes
+ * them after commit. Events survive a crash of the service, this is the default delivery mode.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "tuum.account.events.delivery", havingValue = "outbox", matchIfMissing = true
+)
+public class OutboxEventSink implements EventSink {
+  private final OutboxMapper outboxMapper;
+
+  public OutboxEventSink(OutboxMapper outboxMapper) {
+    this.outboxMapper = outboxMapper;
+  }
+
+  @Override
+  public void publish(List<EventMessage> messages) {
+    outboxMapper.insertEvents(messages);
+  }
+}
@@ -0,0 +1,19 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface OutboxMapper {
+
+  void insertEvents(@Param("events") List<EventMessage> events);
+
+  /**
+   * Returns the oldest events and locks them until the end of the transaction. Events locked by
+   * other transactions are skipped, so several relays can drain the outbox concurrently.
+   */
+  List<OutboxEvent> lockNextEvents(@Param("limit") int limit);
+
+  void deleteEvents(@Param("ids") List<Long> ids);
+}
@@ -0,0 +1,82 @@
+package ee.metsmarko.tuum.account.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Publishes events from the outbox table to the message broker. Each batch is sent on a single
+ * channel by {@link ConfirmedPublisher} and confirmed events are deleted with one statement. Events
+ * that are not confirmed stay in the outbox and are sent again with a later batch, so delivery is
+ * at least once. Runs only with outbox delivery, the only mode that writes the outbox.
+ */
+@Component
+@ConditionalOnProperty(
+    name = "tuum.account.events.delivery", havingValue = "outbox", matchIfMissing = true
+)
+public class OutboxRelay {
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+  private final OutboxMapper outboxMapper;
+  private final RabbitTemplate template;
+  private final ConfirmedPublisher publisher;
+  private final TransactionOperations transactionOperations;
+  private final int batchSize;
+
+  public OutboxRelay(
+      OutboxMapper outboxMapper, RabbitTemplate template, ConfirmedPublisher publisher,
+      TransactionOperations transactionOperations,
+      @Value("${tuum.account.outbox.batch-size}") int batchSize
+  ) {
+    this.outboxMapper = outboxMapper;
+    this.template = template;
+    this.publisher = publisher;
+    this.transactionOperations = transactionOperations;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Relays batches until the outbox is drained or a batch is not fully confirmed.
+   */
+  @Scheduled(fixedDelayString = "${tuum.account.outbox.poll-interval-ms}")
+  public void relay() {
+    Integer confirmed;
+    do {
+      confirmed = transactionOperations.execute(status -> relayBatch());
+    } while (confirmed != null && confirmed == batchSize);
+  }
+
+  private int relayBatch() {
+    List<OutboxEvent> events = outboxMapper.lockNextEvents(batchSize);
+    if (events.isEmpty()) {
+      return 0;
+    }
+    List<Long> confirmed = publish(events);
+    if (!confirmed.isEmpty()) {
+      outboxMapper.deleteEvents(confirmed);
+    }
+    log.debug("Relayed {} of {} events", confirmed.size(), events.size());
+    return confirmed.size();
+  }
+
+  private List<Long> publish(List<OutboxEvent> events) {
+    List<EventMessage> messages = new ArrayList<>(events.size());
+    for (OutboxEvent event : events) {
+      messages.add(event.message());
+    }
+    boolean[] acked = template.invoke(operations -> publisher.publish(operations, messages));
+    List<Long> confirmed = new ArrayList<>(events.size());
+    for (int i = 0; i < events.size(); i++) {
+      if (acked[i]) {
+        confirmed.add(events.get(i).id());
+      }
+    }
+    return confirmed;
+  }
+}
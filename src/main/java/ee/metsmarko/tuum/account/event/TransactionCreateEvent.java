@@ -1,9 +1,22 @@
 package ee.metsmarko.tuum.account.event;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
 import ee.metsmarko.tuum.account.TransactionDirection;
 import java.math.BigDecimal;
 import java.util.UUID;
 
-public record TransactionCreateEvent(UUID transactionId, UUID accountId, BigDecimal amount,
-                                     String currency, TransactionDirection direction) {
+public record TransactionCreateEvent(UUID transactionId, UUID accountId, Money amount,
+                                     Currency currency, TransactionDirection direction) {
+  @JsonCreator
+  TransactionCreateEvent(
+      @JsonProperty("transactionId") UUID transactionId,
+      @JsonProperty("accountId") UUID accountId, @JsonProperty("amount") BigDecimal amount,
+      @JsonProperty("currency") Currency currency,
+      @JsonProperty("direction") TransactionDirection direction
+  ) {
+    this(transactionId, accountId, Money.of(amount, currency), currency, direction);
+  }
 }
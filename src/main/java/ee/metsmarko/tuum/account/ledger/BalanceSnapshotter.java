@@ -0,0 +1,43 @@
+package ee.metsmarko.tuum.account.ledger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+/**
+ * Folds balance deltas into snapshots in ledger mode, so that reading a balance sums only the
+ * deltas of the last few moments. Deltas locked by another snapshotter are skipped.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.balance-mode", havingValue = "ledger")
+public class BalanceSnapshotter {
+  private static final Logger log = LoggerFactory.getLogger(BalanceSnapshotter.class);
+  private final LedgerMapper ledgerMapper;
+  private final TransactionOperations transactionOperations;
+  private final int batchSize;
+
+  public BalanceSnapshotter(
+      LedgerMapper ledgerMapper, TransactionOperations transactionOperations,
+      @Value("${tuum.account.ledger.snapshot-batch-size}") int batchSize
+  ) {
+    this.ledgerMapper = ledgerMapper;
+    this.transactionOperations = transactionOperations;
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Folds batches until there are no more deltas.
+   */
+  @Scheduled(fixedDelayString = "${tuum.account.ledger.snapshot-interval-ms}")
+  public void snapshot() {
+    Integer folded;
+    do {
+      folded = transactionOperations.execute(status -> ledgerMapper.foldDeltas(batchSize));
+      log.debug("Folded {} balance deltas", folded);
+    } while (folded != null && folded == batchSize);
+  }
+}
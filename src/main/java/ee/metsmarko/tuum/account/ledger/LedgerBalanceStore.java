@@ -0,0 +1,80 @@
+package ee.metsmarko.tuum.account.ledger;
+
+import ee.metsmarko.tuum.account.AccountMapper;
+import ee.metsmarko.tuum.account.BalanceKey;
+import ee.metsmarko.tuum.account.BalanceStore;
+import ee.metsmarko.tuum.account.BalanceUpdate;
+import ee.metsmarko.tuum.account.LockedBalance;
+import ee.metsmarko.tuum.account.PostedTransaction;
+import ee.metsmarko.tuum.account.Transaction;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps balances as an append-only ledger. Transactions append a balance delta instead of updating
+ * the balance row, account_balance holds the latest snapshot and {@link BalanceSnapshotter} folds
+ * deltas into it. Credits lock no balance, so the balance after them is that at the time of their
+ * statement without a version, and add to one of {@code tuum.account.ledger.turnover-slots}
+ * turnover rows of their day at random. Debits lock the snapshot row before reading the balance,
+ * so concurrent debits of a balance can not overdraw it.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.balance-mode", havingValue = "ledger")
+public class LedgerBalanceStore implements BalanceStore {
+  private final AccountMapper accountMapper;
+  private final LedgerMapper ledgerMapper;
+  private final int turnoverSlots;
+
+  public LedgerBalanceStore(AccountMapper accountMapper, LedgerMapper ledgerMapper,
+                            @Value("${tuum.account.ledger.turnover-slots}") int turnoverSlots) {
+    if (turnoverSlots < 1) {
+      throw new IllegalArgumentException("turnover slots must be at least 1");
+    }
+    this.accountMapper = accountMapper;
+    this.ledgerMapper = ledgerMapper;
+    this.turnoverSlots = turnoverSlots;
+  }
+
+  @Override
+  public PostedTransaction credit(Transaction transaction, String idempotencyKey) {
+    return ledgerMapper.credit(
+        transaction, idempotencyKey, ThreadLocalRandom.current().nextInt(turnoverSlots)
+    );
+  }
+
+  @Override
+  public PostedTransaction debit(Transaction transaction, String idempotencyKey) {
+    accountMapper.lockBalances(
+        Set.of(new BalanceKey(transaction.getAccountId(), transaction.getCurrency()))
+    );
+    return ledgerMapper.debit(transaction, idempotencyKey);
+  }
+
+  /**
+   * Locks snapshot rows and then reads the balances with a new statement, which sees deltas of
+   * transactions that held the locks before.
+   */
+  @Override
+  public List<LockedBalance> lockBalances(Collection<BalanceKey> keys) {
+    if (accountMapper.lockBalances(keys).isEmpty()) {
+      return List.of();
+    }
+    return ledgerMapper.getBalances(keys);
+  }
+
+  /**
+   * Appends a delta for every balance, also when the transactions cancel each other out, so that
+   * the version of the balance counts them.
+   */
+  @Override
+  public void updateBalances(Collection<BalanceUpdate> updates) {
+    if (!updates.isEmpty()) {
+      ledgerMapper.insertDeltas(updates);
+    }
+  }
+}
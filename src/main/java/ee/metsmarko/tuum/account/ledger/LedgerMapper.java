@@ -0,0 +1,58 @@
+package ee.metsmarko.tuum.account.ledger;
+
+import ee.metsmarko.tuum.account.BalanceKey;
+import ee.metsmarko.tuum.account.BalanceUpdate;
+import ee.metsmarko.tuum.account.LockedBalance;
+import ee.metsmarko.tuum.account.PostedTransaction;
+import ee.metsmarko.tuum.account.Transaction;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface LedgerMapper {
+
+  /**
+   * Appends a balance delta and stores the transaction in a single statement.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @param slot           turnover slot the transaction is added to
+   * @return the transaction with the balance at the time of the statement and version 0,
+   *     concurrent credits are not seen
+   */
+  PostedTransaction credit(
+      @Param("tx") Transaction transaction, @Param("idempotencyKey") String idempotencyKey,
+      @Param("slot") int slot
+  );
+
+  /**
+   * Appends a negative balance delta and stores the transaction in a single statement. The
+   * snapshot must be locked by an earlier statement, so that deltas of concurrent debits are
+   * visible.
+   *
+   * @param idempotencyKey client supplied key, null when not given
+   * @return null when balance is smaller than transaction amount, nothing is changed then
+   */
+  PostedTransaction debit(
+      @Param("tx") Transaction transaction, @Param("idempotencyKey") String idempotencyKey
+  );
+
+  /**
+   * Returns snapshot plus deltas of each balance. Balances that do not exist are missing from the
+   * result.
+   */
+  List<LockedBalance> getBalances(@Param("keys") Collection<BalanceKey> keys);
+
+  /**
+   * Appends balance deltas in a single statement.
+   */
+  void insertDeltas(@Param("updates") Collection<BalanceUpdate> updates);
+
+  /**
+   * Folds the oldest deltas into snapshots and deletes them.
+   *
+   * @return number of folded deltas
+   */
+  int foldDeltas(@Param("limit") int limit);
+}
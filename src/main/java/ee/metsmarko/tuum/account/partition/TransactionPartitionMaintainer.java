@@ -0,0 +1,106 @@
+package ee.metsmarko.tuum.account.partition;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps monthly partitions of the transaction table. Partitions are created
+ * {@code months-ahead} months in advance, so inserts never fall into the default partition.
+ * Partitions older than {@code retention-months} are detached, the detached tables are left in
+ * place for archiving. Only partitions named transaction_yyyy_MM are managed.
+ */
+@Component
+public class TransactionPartitionMaintainer {
+  private static final Logger log = LoggerFactory.getLogger(TransactionPartitionMaintainer.class);
+  private static final DateTimeFormatter NAME_FORMAT =
+      DateTimeFormatter.ofPattern("'transaction_'yyyy_MM");
+  private static final Pattern NAME_PATTERN = Pattern.compile("transaction_(\\d{4})_(\\d{2})");
+  private final TransactionPartitionMapper partitionMapper;
+  private final int monthsAhead;
+  private final int retentionMonths;
+
+  public TransactionPartitionMaintainer(
+      TransactionPartitionMapper partitionMapper,
+      @Value("${tuum.account.partitions.months-ahead}") int monthsAhead,
+      @Value("${tuum.account.partitions.retention-months}") int retentionMonths
+  ) {
+    this.partitionMapper = partitionMapper;
+    this.monthsAhead = monthsAhead;
+    this.retentionMonths = retentionMonths;
+  }
+
+  @Scheduled(fixedDelayString = "${tuum.account.partitions.check-interval-ms}")
+  public void maintain() {
+    maintain(YearMonth.now(ZoneOffset.UTC));
+  }
+
+  /**
+   * Creates partitions from current month to {@code months-ahead} months ahead and detaches
+   * partitions older than {@code retention-months}. Retention of 0 keeps all partitions.
+   */
+  void maintain(YearMonth current) {
+    for (int i = 0; i <= monthsAhead; i++) {
+      createPartition(current.plusMonths(i));
+    }
+    if (retentionMonths > 0) {
+      detachPartitionsBefore(current.minusMonths(retentionMonths));
+    }
+  }
+
+  private void createPartition(YearMonth month) {
+    String name = NAME_FORMAT.format(month);
+    try {
+      partitionMapper.createTransactionPartition(name, bound(month), bound(month.plusMonths(1)));
+    } catch (DataAccessException e) {
+      // fails when the default partition already has rows of this month
+      log.error("Could not create partition {}", name, e);
+    }
+  }
+
+  /**
+   * Idempotency keys are deleted up to the oldest partition that is still attached, so a
+   * partition that could not be detached keeps the keys of its transactions.
+   */
+  private void detachPartitionsBefore(YearMonth oldest) {
+    YearMonth keysBefore = oldest;
+    for (String name : partitionMapper.getTransactionPartitions()) {
+      Matcher matcher = NAME_PATTERN.matcher(name);
+      if (!matcher.matches()) {
+        continue;
+      }
+      YearMonth month = YearMonth.of(
+          Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))
+      );
+      if (month.isBefore(oldest)) {
+        try {
+          partitionMapper.detachTransactionPartition(name);
+          log.info("Detached partition {}", name);
+        } catch (DataAccessException e) {
+          log.error("Could not detach partition {}", name, e);
+          if (month.isBefore(keysBefore)) {
+            keysBefore = month;
+          }
+        }
+      }
+    }
+    int deleted = partitionMapper.deleteIdempotencyKeysBefore(
+        keysBefore.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC)
+    );
+    log.debug("Deleted {} idempotency keys of detached partitions", deleted);
+  }
+
+  private static String bound(YearMonth month) {
+    OffsetDateTime start = month.atDay(1).atStartOfDay().atOffset(ZoneOffset.UTC);
+    return start.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+  }
+}
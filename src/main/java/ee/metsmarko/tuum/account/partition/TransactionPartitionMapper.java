@@ -0,0 +1,27 @@
+package ee.metsmarko.tuum.account.partition;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface TransactionPartitionMapper {
+
+  /**
+   * Returns names of partitions attached to the transaction table.
+   */
+  List<String> getTransactionPartitions();
+
+  /**
+   * Creates a partition for transactions created in [from, to) unless it exists. Arguments are
+   * written into the statement as is, they must not come from user input.
+   */
+  void createTransactionPartition(
+      @Param("name") String name, @Param("from") String from, @Param("to") String to
+  );
+
+  void detachTransactionPartition(@Param("name") String name);
+
+  int deleteIdempotencyKeysBefore(@Param("before") OffsetDateTime before);
+}
@@ -0,0 +1,205 @@
+package ee.metsmarko.tuum.account.projection;
+
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.event.AccountCreateEvent;
+import ee.metsmarko.tuum.account.event.BalanceChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory read model of accounts and their balances, fed by the account events of all instances
+ * of the service through {@link BalanceProjectionListener}. Every instance keeps its own
+ * projection, so account reads are served from memory and read capacity grows with the number of
+ * instances instead of with the database.
+ *
+ * <p>Balance change events carry the version of the balance. An event with the next version is
+ * applied and an event with a version already seen is skipped. Any other event means that events
+ * were missed or arrive out of order, the account is then reloaded from the database. The
+ * projection is rebuilt from the database on start-up, accounts that are not projected yet are
+ * loaded on first read or event. An account whose last events were lost, e.g. while the queue of
+ * the instance was not bound, would stay stale until its next event, so the projection is
+ * reconciled with the database every {@code tuum.account.projection.reconcile-interval-ms}.
+ *
+ * <p>Versions follow each other only when changes of a balance are serialized, that is with row
+ * balances in one slot. Ledger credits and credits of different slots do not wait for each other
+ * and can post the same version, so the projection refuses to start in other modes.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.projection.enabled", havingValue = "true")
+public class BalanceProjection {
+  private static final Logger log = LoggerFactory.getLogger(BalanceProjection.class);
+  private final ProjectionMapper projectionMapper;
+  private final int rebuildBatchSize;
+  private final Map<UUID, ProjectedAccount> accounts = new ConcurrentHashMap<>();
+  private final Counter applied;
+  private final Counter skipped;
+  private final Counter reloaded;
+  private final Counter reconciled;
+
+  public BalanceProjection(
+      ProjectionMapper projectionMapper, MeterRegistry meterRegistry,
+      @Value("${tuum.account.balance-mode}") String balanceMode,
+      @Value("${tuum.account.balance-slots}") int balanceSlots,
+      @Value("${tuum.account.projection.rebuild-batch-size}") int rebuildBatchSize
+  ) {
+    if (!"row".equals(balanceMode) || balanceSlots != 1) {
+      throw new IllegalStateException("balance projection requires row balances in one slot");
+    }
+    this.projectionMapper = projectionMapper;
+    this.rebuildBatchSize = rebuildBatchSize;
+    this.applied = eventCounter(meterRegistry, "applied");
+    this.skipped = eventCounter(meterRegistry, "skipped");
+    this.reloaded = eventCounter(meterRegistry, "reloaded");
+    this.reconciled = Counter.builder("tuum.projection.reconciled")
+        .description("Projected accounts that were behind the database when reconciled")
+        .register(meterRegistry);
+    Gauge.builder("tuum.projection.accounts", accounts, Map::size)
+        .description("Accounts in the balance projection")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns the account from the projection, an account that is not projected yet is loaded
+   * from the database.
+   *
+   * @param id id of the account
+   * @return an Optional containing account if found, empty Optional otherwise
+   */
+  public Optional<Account> getAccountById(UUID id) {
+    ProjectedAccount account = accounts.get(id);
+    if (account == null) {
+      account = load(id);
+    }
+    return Optional.ofNullable(account).map(ProjectedAccount::toAccount);
+  }
+
+  /**
+   * Loads the new account, so that its first read is served from memory.
+   */
+  public void accountCreated(AccountCreateEvent event) {
+    load(event.accountId());
+  }
+
+  /**
+   * Applies the change when it follows the projected version of the balance, skips it when the
+   * version was already seen and reloads the account otherwise. Events without a version are
+   * always reloaded.
+   */
+  public void balanceChanged(BalanceChangeEvent event) {
+    ProjectedAccount account = accounts.get(event.accountId());
+    ProjectedBalance balance = account == null ? null : account.balance(event.currency());
+    if (balance != null && event.version() > 0) {
+      if (event.version() <= balance.version()) {
+        skipped.increment();
+        return;
+      }
+      if (event.version() == balance.version() + 1) {
+        accounts.merge(
+            event.accountId(),
+            account.with(new ProjectedBalance(event.newBalance(), event.version())),
+            ProjectedAccount::merge
+        );
+        applied.increment();
+        return;
+      }
+    }
+    log.debug("Reloading account {}, projected {} and got version {} of {}", event.accountId(),
+        balance == null ? null : balance.version(), event.version(), event.currency());
+    reloaded.increment();
+    load(event.accountId());
+  }
+
+  /**
+   * Loads all accounts in pages of {@code tuum.account.projection.rebuild-batch-size}. Events
+   * received meanwhile are applied, a page never replaces a newer balance.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    long start = System.nanoTime();
+    loadAll();
+    log.info("Rebuilt balance projection of {} accounts in {} ms", accounts.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  /**
+   * Loads all accounts like {@link #rebuild()} and takes balances that are newer in the database.
+   * Accounts that were behind are counted in {@code tuum.projection.reconciled}.
+   */
+  @Scheduled(
+      fixedDelayString = "${tuum.account.projection.reconcile-interval-ms}",
+      initialDelayString = "${tuum.account.projection.reconcile-interval-ms}"
+  )
+  public void reconcile() {
+    int behind = loadAll();
+    if (behind > 0) {
+      log.warn("Reconciled {} projected accounts that were behind the database", behind);
+      reconciled.increment(behind);
+    }
+  }
+
+  /**
+   * Loads all accounts in pages and merges them into the projection.
+   *
+   * @return number of projected accounts that had an older balance than the database
+   */
+  private int loadAll() {
+    int behind = 0;
+    UUID after = null;
+    List<BalanceRow> rows = projectionMapper.getBalancesAfter(null, rebuildBatchSize);
+    while (!rows.isEmpty()) {
+      List<BalanceRow> accountRows = new ArrayList<>();
+      for (BalanceRow row : rows) {
+        if (!accountRows.isEmpty() && !row.accountId().equals(after)) {
+          behind += merge(ProjectedAccount.of(accountRows));
+          accountRows = new ArrayList<>();
+        }
+        accountRows.add(row);
+        after = row.accountId();
+      }
+      behind += merge(ProjectedAccount.of(accountRows));
+      rows = projectionMapper.getBalancesAfter(after, rebuildBatchSize);
+    }
+    return behind;
+  }
+
+  /**
+   * Puts the loaded account and returns 1 when it was projected with an older balance.
+   */
+  private int merge(ProjectedAccount loaded) {
+    ProjectedAccount projected = accounts.get(loaded.id());
+    put(loaded);
+    return projected != null && projected.isBehind(loaded) ? 1 : 0;
+  }
+
+  private ProjectedAccount load(UUID id) {
+    List<BalanceRow> rows = projectionMapper.getBalances(id);
+    return rows.isEmpty() ? null : put(ProjectedAccount.of(rows));
+  }
+
+  private ProjectedAccount put(ProjectedAccount account) {
+    return accounts.merge(account.id(), account, ProjectedAccount::merge);
+  }
+
+  private static Counter eventCounter(MeterRegistry meterRegistry, String outcome) {
+    return Counter.builder("tuum.projection.events")
+        .description("Balance change events received by the projection")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,74 @@
+package ee.metsmarko.tuum.account.projection;
+
+import static ee.metsmarko.tuum.account.event.AccountEventPublisher.NEW_ACCOUNT_KEY;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.event.AccountCreateEvent;
+import ee.metsmarko.tuum.account.event.BalanceChangeEvent;
+import ee.metsmarko.tuum.account.event.BinaryEventCodec;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds {@link BalanceProjection} from a queue of its own, an exclusive queue that is deleted when
+ * the instance stops, so every instance receives all account created and balance change events.
+ * Both event formats are read, the format of a message is its content type.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.projection.enabled", havingValue = "true")
+public class BalanceProjectionListener {
+  private static final Logger log = LoggerFactory.getLogger(BalanceProjectionListener.class);
+  private final BalanceProjection projection;
+  private final ObjectMapper mapper;
+  private final BinaryEventCodec binaryCodec = new BinaryEventCodec();
+
+  public BalanceProjectionListener(BalanceProjection projection, ObjectMapper mapper) {
+    this.projection = projection;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Passes the event to the projection. Events that can not be read are logged and dropped, the
+   * next event of the balance then reloads the account.
+   */
+  @RabbitListener(bindings = @QueueBinding(
+      value = @Queue,
+      exchange = @Exchange(
+          name = "${tuum.account.mq.exchange-name}", type = ExchangeTypes.TOPIC
+      ),
+      key = {NEW_ACCOUNT_KEY, "account.balance.*"}
+  ))
+  public void onEvent(Message message) {
+    String routingKey = message.getMessageProperties().getReceivedRoutingKey();
+    Object event;
+    try {
+      event = decode(message, routingKey);
+    } catch (IOException e) {
+      log.error("Could not read event {}, dropping it", routingKey, e);
+      return;
+    }
+    if (event instanceof BalanceChangeEvent e) {
+      projection.balanceChanged(e);
+    } else if (event instanceof AccountCreateEvent e) {
+      projection.accountCreated(e);
+    }
+  }
+
+  private Object decode(Message message, String routingKey) throws IOException {
+    if (BinaryEventCodec.CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+      return binaryCodec.decode(message.getBody());
+    }
+    Class<?> type = NEW_ACCOUNT_KEY.equals(routingKey)
+        ? AccountCreateEvent.class : BalanceChangeEvent.class;
+    return mapper.readValue(message.getBody(), type);
+  }
+}
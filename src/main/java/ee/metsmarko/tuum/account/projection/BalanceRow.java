@@ -0,0 +1,17 @@
+package ee.metsmarko.tuum.account.projection;
+
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Balance of an account together with the account, as read to rebuild the projection.
+ */
+public record BalanceRow(UUID accountId, UUID customerId, String country, Money balance,
+                         long version) {
+  BalanceRow(UUID accountId, UUID customerId, String country, Currency currency,
+             BigDecimal balance, long version) {
+    this(accountId, customerId, country, Money.of(balance, currency), version);
+  }
+}
@@ -0,0 +1,92 @@
+package ee.metsmarko.tuum.account.projection;
+
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.AccountBalance;
+import ee.metsmarko.tuum.account.Currency;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable account of the projection. Accounts have a balance of a few currencies, so balances
+ * are kept in a list and changes copy it.
+ */
+record ProjectedAccount(UUID id, UUID customerId, String country,
+                        List<ProjectedBalance> balances) {
+
+  /**
+   * Builds the account from its balance rows, all rows must be of the same account.
+   */
+  static ProjectedAccount of(List<BalanceRow> rows) {
+    BalanceRow first = rows.get(0);
+    return new ProjectedAccount(
+        first.accountId(), first.customerId(), first.country(),
+        rows.stream().map(r -> new ProjectedBalance(r.balance(), r.version())).toList()
+    );
+  }
+
+  /**
+   * Returns the balance of the currency, null when the account has no balance of it.
+   */
+  ProjectedBalance balance(Currency currency) {
+    for (ProjectedBalance balance : balances) {
+      if (balance.currency() == currency) {
+        return balance;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a copy of the account with the balance of a currency replaced.
+   */
+  ProjectedAccount with(ProjectedBalance balance) {
+    List<ProjectedBalance> changed = new ArrayList<>(balances.size());
+    for (ProjectedBalance current : balances) {
+      changed.add(current.currency() == balance.currency() ? balance : current);
+    }
+    return new ProjectedAccount(id, customerId, country, List.copyOf(changed));
+  }
+
+  /**
+   * Combines two projections of the account, the balance with the higher version wins. Used when
+   * an event and a load from the database race. Currencies of an account never change.
+   */
+  ProjectedAccount merge(ProjectedAccount other) {
+    ProjectedAccount merged = this;
+    for (ProjectedBalance balance : other.balances) {
+      ProjectedBalance current = merged.balance(balance.currency());
+      if (current != null && current.version() < balance.version()) {
+        merged = merged.with(balance);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Returns whether the other projection of the account has a newer balance of any currency.
+   */
+  boolean isBehind(ProjectedAccount other) {
+    for (ProjectedBalance balance : other.balances) {
+      ProjectedBalance current = balance(balance.currency());
+      if (current != null && current.version() < balance.version()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the account, its version is the sum of the versions of its balances like in the
+   * database.
+   */
+  Account toAccount() {
+    List<AccountBalance> accountBalances = new ArrayList<>(balances.size());
+    long version = 0;
+    for (ProjectedBalance balance : balances) {
+      accountBalances.add(new AccountBalance(balance.currency(), balance.balance()));
+      version += balance.version();
+    }
+    return new Account(id, customerId, country, accountBalances, version);
+  }
+}
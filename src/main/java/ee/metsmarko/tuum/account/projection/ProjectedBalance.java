@@ -0,0 +1,13 @@
+package ee.metsmarko.tuum.account.projection;
+
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+
+/**
+ * Balance of a currency and its version, the number of changes of the balance.
+ */
+record ProjectedBalance(Money balance, long version) {
+  Currency currency() {
+    return balance.currency();
+  }
+}
@@ -0,0 +1,23 @@
+package ee.metsmarko.tuum.account.projection;
+
+import java.util.List;
+import java.util.UUID;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface ProjectionMapper {
+
+  /**
+   * Returns balances of the account with their versions, empty when the account does not exist.
+   */
+  List<BalanceRow> getBalances(@Param("accountId") UUID accountId);
+
+  /**
+   * Returns balances of the next accounts ordered by account id and currency.
+   *
+   * @param after last account id of the previous page, null for the first page
+   * @param limit number of accounts, not balances, in the page
+   */
+  List<BalanceRow> getBalancesAfter(@Param("after") UUID after, @Param("limit") int limit);
+}
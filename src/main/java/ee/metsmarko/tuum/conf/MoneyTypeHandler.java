@@ -0,0 +1,46 @@
+package ee.metsmarko.tuum.conf;
+
+import ee.metsmarko.tuum.account.Money;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.MappedTypes;
+
+/**
+ * Binds {@link Money} parameters as numeric amounts. An amount column does not tell its currency,
+ * so result maps read amounts as {@link java.math.BigDecimal} and the mapped types convert them
+ * with the currency column of the same row. Reading a column as Money is a mapping error.
+ */
+@MappedTypes(Money.class)
+public class MoneyTypeHandler extends BaseTypeHandler<Money> {
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Money parameter, JdbcType jdbcType)
+      throws SQLException {
+    ps.setBigDecimal(i, parameter.toBigDecimal());
+  }
+
+  @Override
+  public Money getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    throw notMapped(columnName);
+  }
+
+  @Override
+  public Money getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    throw notMapped("#" + columnIndex);
+  }
+
+  @Override
+  public Money getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    throw notMapped("#" + columnIndex);
+  }
+
+  private static SQLException notMapped(String column) {
+    return new SQLException(
+        "column " + column + " is read as Money, map it as BigDecimal with its currency"
+    );
+  }
+}
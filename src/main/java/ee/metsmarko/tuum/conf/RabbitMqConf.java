@@ -1,5 +1,10 @@
 package ee.metsmarko.tuum.conf;
 
+import static ee.metsmarko.tuum.account.event.AccountEventPublisher.DEAD_LETTER_KEY_PREFIX;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -11,4 +16,19 @@ public class RabbitMqConf {
   public TopicExchange exchange(@Value("${tuum.account.mq.exchange-name}") String exchangeName) {
     return new TopicExchange(exchangeName);
   }
+
+  /**
+   * Keeps events that could not be serialized, nothing else is bound to their routing keys.
+   */
+  @Bean
+  public Queue deadLetterQueue(
+      @Value("${tuum.account.mq.dead-letter-queue-name}") String queueName
+  ) {
+    return new Queue(queueName);
+  }
+
+  @Bean
+  public Binding deadLetterBinding(Queue deadLetterQueue, TopicExchange exchange) {
+    return BindingBuilder.bind(deadLetterQueue).to(exchange).with(DEAD_LETTER_KEY_PREFIX + "#");
+  }
 }
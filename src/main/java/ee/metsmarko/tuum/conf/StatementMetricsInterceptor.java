@@ -0,0 +1,149 @@
+package ee.metsmarko.tuum.conf;
+
+import ee.metsmarko.tuum.account.PostedTransaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Records the duration of every mapper statement as {@code tuum.mapper.statement}.
+ *
+ * <p>{@code lockBalances} does nothing but lock balance rows, so its duration is the wait for the
+ * locks and is recorded again as {@code tuum.balance.lock.wait}. Credits and debits also insert
+ * the transaction, so their duration is not the wait, they measure it on the database and return
+ * it with the {@link PostedTransaction}, which is recorded as {@code tuum.balance.lock.wait} too.
+ * The time from the first statement that locked balance rows until the transaction completes is
+ * recorded once per transaction as {@code tuum.balance.lock.held}, a debit that found no slot
+ * locked nothing. Together they tell lock contention apart from slow queries.
+ */
+@Component
+@Intercepts({
+    @Signature(type = Executor.class, method = "update",
+        args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+            CacheKey.class, BoundSql.class}),
+    @Signature(type = Executor.class, method = "queryCursor",
+        args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class StatementMetricsInterceptor implements Interceptor {
+  static final String LOCK_BALANCES_STATEMENT =
+      "ee.metsmarko.tuum.account.AccountMapper.lockBalances";
+  static final Set<String> LOCK_WAIT_REPORTING_STATEMENTS = Set.of(
+      "ee.metsmarko.tuum.account.AccountMapper.credit",
+      "ee.metsmarko.tuum.account.AccountMapper.debit"
+  );
+  static final Set<String> BALANCE_LOCKING_STATEMENTS = Set.of(
+      "ee.metsmarko.tuum.account.AccountMapper.credit",
+      "ee.metsmarko.tuum.account.AccountMapper.debit",
+      LOCK_BALANCES_STATEMENT
+  );
+  // bound to the transaction once its balance lock is timed
+  private static final Object LOCK_HELD_KEY = new Object();
+  private final MeterRegistry meterRegistry;
+  private final Map<String, StatementTimers> timers = new ConcurrentHashMap<>();
+  private final Timer lockWait;
+  private final Timer lockHeld;
+
+  public StatementMetricsInterceptor(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.lockWait = Timer.builder("tuum.balance.lock.wait")
+        .description("Wait for balance row locks")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+    this.lockHeld = Timer.builder("tuum.balance.lock.held")
+        .description("Time from locking balance rows until the transaction completes")
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+    StatementTimers statementTimers = timers.computeIfAbsent(statement.getId(), this::createTimers);
+    long start = System.nanoTime();
+    Object result = null;
+    boolean success = false;
+    try {
+      result = invocation.proceed();
+      success = true;
+      return result;
+    } finally {
+      long end = System.nanoTime();
+      (success ? statementTimers.success() : statementTimers.error())
+          .record(end - start, TimeUnit.NANOSECONDS);
+      if (statementTimers.onlyLocks()) {
+        lockWait.record(end - start, TimeUnit.NANOSECONDS);
+      }
+      if (success && statementTimers.reportsLockWait()
+          && result instanceof List<?> rows && !rows.isEmpty()
+          && rows.get(0) instanceof PostedTransaction posted) {
+        lockWait.record(posted.lockWaitNanos(), TimeUnit.NANOSECONDS);
+      }
+      if (success && statementTimers.locksBalance() && hasRows(result)) {
+        recordLockHeld(end);
+      }
+    }
+  }
+
+  private static boolean hasRows(Object result) {
+    return result instanceof Collection<?> rows ? !rows.isEmpty() : result != null;
+  }
+
+  private void recordLockHeld(long lockedAt) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()
+        || TransactionSynchronizationManager.hasResource(LOCK_HELD_KEY)) {
+      return;
+    }
+    TransactionSynchronizationManager.bindResource(LOCK_HELD_KEY, lockedAt);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(LOCK_HELD_KEY);
+        lockHeld.record(System.nanoTime() - lockedAt, TimeUnit.NANOSECONDS);
+      }
+    });
+  }
+
+  private StatementTimers createTimers(String id) {
+    // ee.metsmarko.tuum.account.AccountMapper.credit -> AccountMapper.credit
+    String name = id.substring(id.lastIndexOf('.', id.lastIndexOf('.') - 1) + 1);
+    return new StatementTimers(
+        statementTimer(name, "success"), statementTimer(name, "error"),
+        BALANCE_LOCKING_STATEMENTS.contains(id), LOCK_BALANCES_STATEMENT.equals(id),
+        LOCK_WAIT_REPORTING_STATEMENTS.contains(id)
+    );
+  }
+
+  private Timer statementTimer(String name, String outcome) {
+    return Timer.builder("tuum.mapper.statement")
+        .description("Duration of mapper statements")
+        .tags("statement", name, "outcome", outcome)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private record StatementTimers(Timer success, Timer error, boolean locksBalance,
+                                 boolean onlyLocks, boolean reportsLockWait) {
+  }
+}
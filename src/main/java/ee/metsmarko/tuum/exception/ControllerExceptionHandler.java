@@ -27,6 +27,16 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
     );
   }
 
+  @ExceptionHandler(value = {TuumUnavailableException.class})
+  protected ResponseEntity<Object> handleUnavailable(TuumUnavailableException ex,
+                                                     WebRequest request) {
+    log.warn("Unavailable: {}", ex.getMessage());
+    return handleExceptionInternal(
+        ex, new ErrorResponse(ex.getMessage()), new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE,
+        request
+    );
+  }
+
   @Override
   @NonNull
   protected ResponseEntity<Object> handleHttpMessageNotReadable(
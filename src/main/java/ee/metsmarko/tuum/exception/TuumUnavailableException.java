@@ -0,0 +1,7 @@
+package ee.metsmarko.tuum.exception;
+
+public class TuumUnavailableException extends TuumException {
+  public TuumUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,21 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "tuum.account.rate-limit.enabled", havingValue = "true")
+public class RateLimitConf implements WebMvcConfigurer {
+  private final RateLimitInterceptor rateLimitInterceptor;
+
+  public RateLimitConf(RateLimitInterceptor rateLimitInterceptor) {
+    this.rateLimitInterceptor = rateLimitInterceptor;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(rateLimitInterceptor);
+  }
+}
@@ -0,0 +1,89 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.AccountService;
+import ee.metsmarko.tuum.exception.ErrorResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Throttles requests of handlers annotated with {@link RateLimited} with {@link RateLimiter}
+ * before the handler runs. The account is the {@code accountId} path variable resolved by the
+ * handler mapping, so every path that reaches the handler is limited. Throttled requests get 429
+ * with a {@code Retry-After} header in whole seconds. The customer of the account is read from
+ * the account cache only once the account bucket allows the request, requests of unknown accounts
+ * are only limited per account and rejected by the controller.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.rate-limit.enabled", havingValue = "true")
+public class RateLimitInterceptor implements HandlerInterceptor {
+  private final RateLimiter rateLimiter;
+  private final AccountService accountService;
+  private final ObjectMapper mapper;
+
+  public RateLimitInterceptor(RateLimiter rateLimiter, AccountService accountService,
+                              ObjectMapper mapper) {
+    this.rateLimiter = rateLimiter;
+    this.accountService = accountService;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response,
+                           Object handler) throws IOException {
+    UUID accountId = rateLimitedAccountId(request, handler);
+    if (accountId == null) {
+      return true;
+    }
+    long wait = rateLimiter.tryAcquire(accountId, this::customerOf);
+    if (wait == 0) {
+      return true;
+    }
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(
+        Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))
+    ));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    mapper.writeValue(response.getOutputStream(), new ErrorResponse("too many requests"));
+    return false;
+  }
+
+  private UUID customerOf(UUID accountId) {
+    return accountService.getAccountById(accountId).map(Account::getCustomerId).orElse(null);
+  }
+
+  private static UUID rateLimitedAccountId(HttpServletRequest request, Object handler) {
+    // a handler that completes asynchronously is dispatched again, its token is already taken
+    if (request.getDispatcherType() != DispatcherType.REQUEST
+        || !(handler instanceof HandlerMethod method)
+        || !method.hasMethodAnnotation(RateLimited.class)) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    Map<String, String> variables = (Map<String, String>) request.getAttribute(
+        HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE
+    );
+    if (variables == null || variables.get("accountId") == null) {
+      return null;
+    }
+    try {
+      return UUID.fromString(variables.get("accountId"));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
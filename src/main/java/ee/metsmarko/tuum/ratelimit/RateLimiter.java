@@ -0,0 +1,112 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token buckets per account and per customer. A request takes a token from both, so a single hot
+ * account is throttled before it ties up the connection pool with waiters for its balance lock,
+ * and a customer can not work around the limit by spreading requests over its accounts.
+ *
+ * <p>Buckets are created on first use and evicted once they are full again, a full bucket is the
+ * same as a missing one.
+ */
+@Component
+@ConditionalOnProperty(name = "tuum.account.rate-limit.enabled", havingValue = "true")
+public class RateLimiter {
+  private final Map<UUID, TokenBucket> accounts = new ConcurrentHashMap<>();
+  private final Map<UUID, TokenBucket> customers = new ConcurrentHashMap<>();
+  private final long accountNanosPerToken;
+  private final long accountCapacity;
+  private final long customerNanosPerToken;
+  private final long customerCapacity;
+  private final Counter accountThrottled;
+  private final Counter customerThrottled;
+
+  public RateLimiter(
+      MeterRegistry meterRegistry,
+      @Value("${tuum.account.rate-limit.account.rate}") double accountRate,
+      @Value("${tuum.account.rate-limit.account.burst}") long accountBurst,
+      @Value("${tuum.account.rate-limit.customer.rate}") double customerRate,
+      @Value("${tuum.account.rate-limit.customer.burst}") long customerBurst
+  ) {
+    this.accountNanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / accountRate);
+    this.accountCapacity = accountBurst;
+    this.customerNanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / customerRate);
+    this.customerCapacity = customerBurst;
+    this.accountThrottled = throttledCounter(meterRegistry, "account");
+    this.customerThrottled = throttledCounter(meterRegistry, "customer");
+    Gauge.builder("tuum.rate-limit.buckets", accounts, Map::size)
+        .description("Token buckets that are not full")
+        .tag("scope", "account")
+        .register(meterRegistry);
+    Gauge.builder("tuum.rate-limit.buckets", customers, Map::size)
+        .description("Token buckets that are not full")
+        .tag("scope", "customer")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Takes a token of the account and then of its customer. The customer is only resolved when the
+   * account bucket allows the request, so a throttled account costs no lookup.
+   *
+   * @param accountId  id of the account
+   * @param customerOf resolves the customer of the account, null when it is not known
+   * @return 0 when the request is allowed, otherwise nanoseconds until it may be retried
+   */
+  public long tryAcquire(UUID accountId, Function<UUID, UUID> customerOf) {
+    return tryAcquire(accountId, customerOf, System.nanoTime());
+  }
+
+  long tryAcquire(UUID accountId, Function<UUID, UUID> customerOf, long now) {
+    TokenBucket account = accounts.computeIfAbsent(accountId, id -> new TokenBucket());
+    long wait = account.tryAcquire(now, accountNanosPerToken, accountCapacity);
+    if (wait > 0) {
+      accountThrottled.increment();
+      return wait;
+    }
+    UUID customerId = customerOf.apply(accountId);
+    if (customerId == null) {
+      return 0;
+    }
+    TokenBucket customer = customers.computeIfAbsent(customerId, id -> new TokenBucket());
+    wait = customer.tryAcquire(now, customerNanosPerToken, customerCapacity);
+    if (wait > 0) {
+      // the request is not made, the account is not charged for it
+      account.release(accountNanosPerToken);
+      customerThrottled.increment();
+    }
+    return wait;
+  }
+
+  /**
+   * Removes full buckets. A request racing with the removal may take a token from a removed
+   * bucket, which at most lets one more request through.
+   */
+  @Scheduled(fixedDelayString = "${tuum.account.rate-limit.eviction-interval-ms}")
+  public void evictIdle() {
+    evictIdle(System.nanoTime());
+  }
+
+  void evictIdle(long now) {
+    accounts.values().removeIf(bucket -> bucket.isFull(now));
+    customers.values().removeIf(bucket -> bucket.isFull(now));
+  }
+
+  private static Counter throttledCounter(MeterRegistry meterRegistry, String scope) {
+    return Counter.builder("tuum.rate-limit.throttled")
+        .description("Requests rejected by a token bucket")
+        .tag("scope", scope)
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,44 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count the bucket keeps the time at which it is full
+ * again (the generic cell rate algorithm), so that taking a token is a single compare-and-set.
+ */
+final class TokenBucket {
+  private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+  /**
+   * Takes a token when there is one.
+   *
+   * @param now           current time in nanoseconds
+   * @param nanosPerToken time it takes to refill one token
+   * @param capacity      tokens the bucket holds
+   * @return 0 when a token was taken, otherwise nanoseconds until the next token
+   */
+  long tryAcquire(long now, long nanosPerToken, long capacity) {
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, now) + nanosPerToken;
+      long wait = next - now - capacity * nanosPerToken;
+      if (wait > 0) {
+        return wait;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Puts back a token taken with {@link #tryAcquire}.
+   */
+  void release(long nanosPerToken) {
+    fullAt.addAndGet(-nanosPerToken);
+  }
+
+  boolean isFull(long now) {
+    return fullAt.get() <= now;
+  }
+}
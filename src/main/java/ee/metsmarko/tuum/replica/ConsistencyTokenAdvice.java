@@ -0,0 +1,44 @@
+package ee.metsmarko.tuum.replica;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds a {@value ConsistencyTokens#HEADER} header to responses of handlers annotated with
+ * {@link IssuesConsistencyToken}. The token is taken when the body is written, on the request
+ * thread that writes it, so a handler that completes asynchronously does not query the primary on
+ * the thread that completed it. Error responses are written by exception handlers and get no
+ * token.
+ */
+@ControllerAdvice
+@ConditionalOnExpression(
+    "${tuum.account.replicas.enabled:false} or ${tuum.account.projection.enabled:false}"
+)
+public class ConsistencyTokenAdvice implements ResponseBodyAdvice<Object> {
+  private final ConsistencyTokens consistencyTokens;
+
+  public ConsistencyTokenAdvice(ConsistencyTokens consistencyTokens) {
+    this.consistencyTokens = consistencyTokens;
+  }
+
+  @Override
+  public boolean supports(MethodParameter returnType,
+                          Class<? extends HttpMessageConverter<?>> converterType) {
+    return returnType.hasMethodAnnotation(IssuesConsistencyToken.class);
+  }
+
+  @Override
+  public Object beforeBodyWrite(Object body, MethodParameter returnType,
+                                MediaType selectedContentType,
+                                Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                ServerHttpRequest request, ServerHttpResponse response) {
+    response.getHeaders().set(ConsistencyTokens.HEADER, consistencyTokens.current());
+    return body;
+  }
+}
@@ -0,0 +1,36 @@
+package ee.metsmarko.tuum.replica;
+
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Issues consistency tokens after writes and honours them on reads whenever reads may lag behind
+ * writes, that is when they are served by replicas or by the balance projection. Without
+ * replicas a read with a token goes to the database instead of the projection.
+ */
+@Configuration
+@ConditionalOnExpression(
+    "${tuum.account.replicas.enabled:false} or ${tuum.account.projection.enabled:false}"
+)
+public class ConsistencyTokenConf {
+
+  /**
+   * Takes tokens from the primary pool, the routing data source may send a read to a replica.
+   */
+  @Bean
+  public ConsistencyTokens consistencyTokens(
+      Optional<ReplicaRoutingDataSource> routingDataSource, DataSource dataSource
+  ) {
+    return new ConsistencyTokens(routingDataSource
+        .map(ReplicaRoutingDataSource::getResolvedDefaultDataSource)
+        .orElse(dataSource));
+  }
+
+  @Bean
+  public ConsistencyTokenFilter consistencyTokenFilter() {
+    return new ConsistencyTokenFilter();
+  }
+}
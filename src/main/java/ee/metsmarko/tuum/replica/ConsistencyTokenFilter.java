@@ -0,0 +1,30 @@
+package ee.metsmarko.tuum.replica;
+
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Makes reads of a request see the position in its {@value ConsistencyTokens#HEADER} header.
+ */
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    String token = request.getHeader(ConsistencyTokens.HEADER);
+    if (token == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    ReadConsistency.require(token);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReadConsistency.clear();
+    }
+  }
+}
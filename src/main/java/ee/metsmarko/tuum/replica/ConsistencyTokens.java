@@ -0,0 +1,21 @@
+package ee.metsmarko.tuum.replica;
+
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Issues consistency tokens. A token is the current WAL position of the primary, taken after a
+ * write is committed, so a replica that has replayed it sees the write.
+ */
+public class ConsistencyTokens {
+  public static final String HEADER = "Consistency-Token";
+  private final JdbcTemplate primary;
+
+  public ConsistencyTokens(DataSource primary) {
+    this.primary = new JdbcTemplate(primary);
+  }
+
+  public String current() {
+    return primary.queryForObject("select pg_current_wal_lsn()::text", String.class);
+  }
+}
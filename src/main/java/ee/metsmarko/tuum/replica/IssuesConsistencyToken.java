@@ -0,0 +1,15 @@
+package ee.metsmarko.tuum.replica;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler of writes whose successful responses carry a {@value ConsistencyTokens#HEADER}
+ * header, see {@link ConsistencyTokenAdvice}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IssuesConsistencyToken {
+}
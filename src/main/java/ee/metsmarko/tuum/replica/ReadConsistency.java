@@ -0,0 +1,63 @@
+package ee.metsmarko.tuum.replica;
+
+/**
+ * WAL position the reads of the current thread must see. Positions are Postgres LSNs, written as
+ * text in the {@code X/Y} form of {@code pg_lsn}, and are handed to clients as consistency tokens
+ * after writes.
+ */
+public final class ReadConsistency {
+  private static final ThreadLocal<Long> REQUIRED_POSITION = new ThreadLocal<>();
+
+  private ReadConsistency() {
+  }
+
+  /**
+   * Requires reads of the current thread to see the given position. A token that can not be
+   * parsed sends reads to the primary.
+   *
+   * @param token consistency token returned after a write
+   */
+  public static void require(String token) {
+    long position;
+    try {
+      position = parse(token);
+    } catch (IllegalArgumentException e) {
+      position = Long.MAX_VALUE;
+    }
+    REQUIRED_POSITION.set(position);
+  }
+
+  /**
+   * Returns the position reads must see, 0 when any replica will do.
+   */
+  public static long requiredPosition() {
+    Long position = REQUIRED_POSITION.get();
+    return position == null ? 0 : position;
+  }
+
+  public static boolean isRequired() {
+    return REQUIRED_POSITION.get() != null;
+  }
+
+  public static void clear() {
+    REQUIRED_POSITION.remove();
+  }
+
+  /**
+   * Parses a pg_lsn, e.g. {@code 16/B374D848}.
+   *
+   * @throws IllegalArgumentException when lsn is not valid
+   */
+  public static long parse(String lsn) {
+    int separator = lsn == null ? -1 : lsn.indexOf('/');
+    if (separator < 1 || separator == lsn.length() - 1) {
+      throw new IllegalArgumentException("invalid lsn: " + lsn);
+    }
+    long high = Long.parseLong(lsn.substring(0, separator), 16);
+    long low = Long.parseLong(lsn.substring(separator + 1), 16);
+    if (high > 0xFFFFFFFFL || low > 0xFFFFFFFFL || high < 0 || low < 0) {
+      throw new IllegalArgumentException("invalid lsn: " + lsn);
+    }
+    return high << 32 | low;
+  }
+}
@@ -0,0 +1,68 @@
+package ee.metsmarko.tuum.replica;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Routes read-only transactions to replicas at {@code tuum.account.replicas.urls}. Replicas use
+ * the credentials of the primary. Every pool is configured with {@code spring.datasource.hikari.*}
+ * like the data source Spring Boot creates without replicas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tuum.account.replicas.enabled", havingValue = "true")
+public class ReplicaConf {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariConfig hikariConfig() {
+    return new HikariConfig();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource routingDataSource(
+      DataSourceProperties properties, HikariConfig hikariConfig,
+      @Value("${tuum.account.replicas.urls}") List<String> urls
+  ) {
+    HikariDataSource primary =
+        pool(properties, hikariConfig, properties.determineUrl(), "primary", false);
+    List<DataSource> replicas = new ArrayList<>(urls.size());
+    for (int i = 0; i < urls.size(); i++) {
+      replicas.add(pool(properties, hikariConfig, urls.get(i), "replica-" + i, true));
+    }
+    return new ReplicaRoutingDataSource(primary, replicas);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+
+  /**
+   * Creates a pool with a copy of the bound Hikari settings. The pool connects on first use like
+   * the one Spring Boot creates.
+   */
+  static HikariDataSource pool(DataSourceProperties properties, HikariConfig hikariConfig,
+                               String url, String name, boolean readOnly) {
+    HikariDataSource pool = new HikariDataSource();
+    hikariConfig.copyStateTo(pool);
+    pool.setJdbcUrl(url);
+    pool.setUsername(properties.determineUsername());
+    pool.setPassword(properties.determinePassword());
+    pool.setDriverClassName(properties.determineDriverClassName());
+    pool.setPoolName(name);
+    pool.setReadOnly(readOnly);
+    return pool;
+  }
+}
@@ -0,0 +1,116 @@
+package ee.metsmarko.tuum.replica;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to replicas in turn and everything else to the primary. A replica
+ * is used only when it has replayed the position required by {@link ReadConsistency}, otherwise
+ * the read goes to the primary. Replay positions are polled, a replica that can not be polled is
+ * not used until it answers again.
+ *
+ * <p>The connection must be fetched after the transaction is marked read-only, so this data
+ * source is used through a lazy connection proxy, see {@link ReplicaConf}. The pools are not
+ * beans of their own, they are closed with this data source.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+  static final String PRIMARY = "primary";
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+  private final List<Replica> replicas = new ArrayList<>();
+  private final List<DataSource> dataSources = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources) {
+    dataSources.add(primary);
+    dataSources.addAll(replicaDataSources);
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (int i = 0; i < replicaDataSources.size(); i++) {
+      Replica replica = new Replica("replica-" + i, new JdbcTemplate(replicaDataSources.get(i)));
+      replicas.add(replica);
+      targets.put(replica.key, replicaDataSources.get(i));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    long required = ReadConsistency.requiredPosition();
+    int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+    for (int i = 0; i < replicas.size(); i++) {
+      Replica replica = replicas.get((start + i) % replicas.size());
+      if (replica.replayPosition >= required) {
+        return replica.key;
+      }
+    }
+    return PRIMARY;
+  }
+
+  /**
+   * Polls the WAL position each replica has replayed.
+   */
+  @Scheduled(fixedDelayString = "${tuum.account.replicas.lag-check-interval-ms}")
+  public void refreshReplayPositions() {
+    for (Replica replica : replicas) {
+      try {
+        String lsn = replica.jdbcTemplate.queryForObject(
+            "select pg_last_wal_replay_lsn()::text", String.class
+        );
+        // null when the database is not a replica
+        replica.replayPosition = lsn == null ? -1 : ReadConsistency.parse(lsn);
+      } catch (DataAccessException e) {
+        log.warn("Could not poll replay position of {}", replica.key, e);
+        replica.replayPosition = -1;
+      }
+    }
+  }
+
+  /**
+   * Closes the primary and replica pools. A pool that fails to close does not keep the others
+   * open.
+   */
+  @Override
+  public void destroy() {
+    for (DataSource dataSource : dataSources) {
+      if (dataSource instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (Exception e) {
+          log.warn("Could not close data source {}", dataSource, e);
+        }
+      }
+    }
+  }
+
+  void setReplayPosition(int replica, long position) {
+    replicas.get(replica).replayPosition = position;
+  }
+
+  private static final class Replica {
+    private final String key;
+    private final JdbcTemplate jdbcTemplate;
+    // -1 until the first successful poll, so an unknown replica is never used
+    private volatile long replayPosition = -1;
+
+    private Replica(String key, JdbcTemplate jdbcTemplate) {
+      this.key = key;
+      this.jdbcTemplate = jdbcTemplate;
+    }
+  }
+}
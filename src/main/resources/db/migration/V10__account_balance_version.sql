@@ -0,0 +1,5 @@
+-- every change of a balance slot bumps its version. Version of an account is the sum of the
+-- versions of its slots plus the number of deltas not folded yet, folding moves the count of the
+-- folded deltas to the snapshot, so the version does not change.
+alter table account_balance
+    add column version bigint not null default 0;
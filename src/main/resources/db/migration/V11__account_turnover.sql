@@ -0,0 +1,17 @@
+-- daily sums of transactions per direction, upserted in the transaction that inserts them, so that
+-- a summary of any period reads one row per day instead of the history. Days are UTC.
+create table account_turnover
+(
+    account_id uuid          not null,
+    currency   currency_code not null,
+    day        date          not null,
+    direction  text          not null,
+    amount     numeric       not null,
+    count      bigint        not null,
+    primary key (account_id, day, currency, direction)
+);
+
+insert into account_turnover (account_id, currency, day, direction, amount, count)
+select account_id, currency, (created_at at time zone 'UTC')::date, direction, sum(amount), count(*)
+from transaction
+group by 1, 2, 3, 4;
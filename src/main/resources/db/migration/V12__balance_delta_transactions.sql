@@ -0,0 +1,4 @@
+-- a delta of a batch holds the change of several transactions. Versions count transactions, so
+-- the version of a balance is the versions of its snapshot plus the transactions of its deltas.
+alter table balance_delta
+    add column transactions integer not null default 1;
@@ -0,0 +1,9 @@
+-- turnover of a day is spread over slot rows like the balance, so that concurrent credits of a
+-- balance with several slots, or of a ledger balance, do not wait for the same row lock. A
+-- summary sums the slots. Existing rows are slot 0.
+alter table account_turnover
+    add column slot smallint not null default 0;
+
+alter table account_turnover
+    drop constraint account_turnover_pkey,
+    add primary key (account_id, day, currency, direction, slot);
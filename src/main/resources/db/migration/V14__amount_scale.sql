@@ -0,0 +1,50 @@
+-- amounts are read as minor units of their currency, every supported currency has 2 decimals.
+-- Amounts with more decimals were accepted before and can not be read any more. Rounding them
+-- would change balances and history, so the migration stops and lists them for a manual fix.
+do
+$$
+    declare
+        invalid text;
+    begin
+        select string_agg(t || ': ' || n, ', ')
+        into invalid
+        from (select 'account_balance.balance' as t, count(*) as n
+              from account_balance
+              where balance <> round(balance, 2)
+              union all
+              select 'transaction.amount', count(*)
+              from transaction
+              where amount <> round(amount, 2)
+              union all
+              select 'transaction.balance_after', count(*)
+              from transaction
+              where balance_after <> round(balance_after, 2)
+              union all
+              select 'balance_delta.amount', count(*)
+              from balance_delta
+              where amount <> round(amount, 2)
+              union all
+              select 'account_turnover.amount', count(*)
+              from account_turnover
+              where amount <> round(amount, 2)) c
+        where n > 0;
+        if invalid is not null then
+            raise exception 'amounts with more than 2 decimals, fix them before migrating: %',
+                invalid;
+        end if;
+    end
+$$;
+
+alter table account_balance
+    add constraint account_balance_balance_scale check (balance = round(balance, 2));
+
+alter table transaction
+    add constraint transaction_amount_scale check (amount = round(amount, 2)),
+    add constraint transaction_balance_after_scale
+        check (balance_after = round(balance_after, 2));
+
+alter table balance_delta
+    add constraint balance_delta_amount_scale check (amount = round(amount, 2));
+
+alter table account_turnover
+    add constraint account_turnover_amount_scale check (amount = round(amount, 2));
@@ -0,0 +1,4 @@
+-- supports keyset pagination of transaction history, replaces the single column index
+create index idx_transaction_account_id_created_at_id on transaction (account_id, created_at, id);
+
+drop index idx_transaction_account_id;
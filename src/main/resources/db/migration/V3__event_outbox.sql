@@ -0,0 +1,9 @@
+-- events are written here in the same transaction as the change they describe and relayed to
+-- the message broker by OutboxRelay
+create table event_outbox
+(
+    id          bigserial primary key,
+    routing_key text                                   not null,
+    payload     bytea                                  not null,
+    created_at  timestamp with time zone default now() not null
+);
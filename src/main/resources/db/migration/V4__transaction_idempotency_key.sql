@@ -0,0 +1,9 @@
+-- idempotency_key is set when the client sent an Idempotency-Key header, balance_after lets a
+-- retried request get the original response without touching account_balance
+alter table transaction
+    add column idempotency_key text,
+    add column balance_after   numeric;
+
+create unique index idx_transaction_account_id_idempotency_key
+    on transaction (account_id, idempotency_key)
+    where idempotency_key is not null;
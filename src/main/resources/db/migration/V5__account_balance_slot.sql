@@ -0,0 +1,7 @@
+-- balance of a currency can be spread over several slot rows, so that concurrent credits do not
+-- wait for the same row lock. Existing balances are slot 0, balance is the sum of all slots.
+alter table account_balance
+    add column slot smallint not null default 0;
+
+create unique index idx_account_balance_account_id_currency_slot
+    on account_balance (account_id, currency, slot);
@@ -0,0 +1,20 @@
+-- currencies are ISO 4217 codes, a domain over text keeps comparisons with text parameters indexed
+create domain currency_code as text check (value ~ '^[A-Z]{3}$');
+
+alter table account_balance
+    alter column currency type currency_code;
+
+alter table transaction
+    alter column currency type currency_code;
+
+-- balance rows are found by their full key, the primary key replaces the unique index from V5 and
+-- the single column account_id index, which is a prefix of it
+alter table account_balance
+    add constraint account_balance_pkey primary key (account_id, currency, slot);
+
+drop index idx_account_balance_account_id_currency_slot;
+drop index idx_account_balance_account_id;
+
+-- duplicates of the primary key indexes of account and transaction
+drop index idx_account_id;
+drop index idx_transaction_id;
@@ -0,0 +1,67 @@
+-- transaction is range partitioned by created_at, one partition per month in UTC. Partitions are
+-- created ahead of time and detached after the retention period by TransactionPartitionMaintainer.
+-- Rows older than the current month stay in transaction_before, rows outside every partition go to
+-- transaction_default.
+alter table transaction rename to transaction_unpartitioned;
+
+create table transaction
+(
+    id              uuid                     default gen_random_uuid(),
+    account_id      uuid references account,
+    amount          numeric                                not null,
+    currency        currency_code                          not null,
+    direction       text                                   not null,
+    description     text                                   not null,
+    created_at      timestamp with time zone default now() not null,
+    balance_after   numeric,
+    primary key (id, created_at)
+) partition by range (created_at);
+
+do
+$$
+    declare
+        current_month timestamp with time zone :=
+            date_trunc('month', now() at time zone 'UTC') at time zone 'UTC';
+        month         timestamp with time zone;
+    begin
+        execute format(
+            'create table transaction_before partition of transaction'
+                ' for values from (minvalue) to (%L)', current_month);
+        for i in 0..3
+            loop
+                month := current_month + make_interval(months => i);
+                execute format(
+                    'create table %I partition of transaction for values from (%L) to (%L)',
+                    'transaction_' || to_char(month at time zone 'UTC', 'YYYY_MM'),
+                    month, month + interval '1 month');
+            end loop;
+    end
+$$;
+
+create table transaction_default partition of transaction default;
+
+-- a unique index on a partitioned table must contain created_at, so idempotency keys are unique
+-- in a table of their own
+create table transaction_idempotency_key
+(
+    account_id      uuid                     not null,
+    idempotency_key text                     not null,
+    transaction_id  uuid                     not null,
+    created_at      timestamp with time zone not null,
+    primary key (account_id, idempotency_key)
+);
+
+insert into transaction (id, account_id, amount, currency, direction, description, created_at,
+                         balance_after)
+select id, account_id, amount, currency, direction, description, created_at, balance_after
+from transaction_unpartitioned;
+
+insert into transaction_idempotency_key (account_id, idempotency_key, transaction_id, created_at)
+select account_id, idempotency_key, id, created_at
+from transaction_unpartitioned
+where idempotency_key is not null;
+
+drop table transaction_unpartitioned;
+
+create index idx_transaction_account_id_created_at_id on transaction (account_id, created_at, id);
+create index idx_transaction_idempotency_key_created_at on transaction_idempotency_key (created_at);
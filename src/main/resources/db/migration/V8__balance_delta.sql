@@ -0,0 +1,12 @@
+-- in ledger mode transactions append their balance change here instead of updating
+-- account_balance, which then holds the latest snapshot. BalanceSnapshotter folds deltas into the
+-- snapshot, balance is the snapshot plus the deltas not folded yet.
+create table balance_delta
+(
+    id         bigserial primary key,
+    account_id uuid          not null,
+    currency   currency_code not null,
+    amount     numeric       not null
+);
+
+create index idx_balance_delta_account_id_currency on balance_delta (account_id, currency);
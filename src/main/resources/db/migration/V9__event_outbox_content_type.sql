@@ -0,0 +1,3 @@
+-- events were always JSON before the format became configurable
+alter table event_outbox
+    add column content_type text not null default 'application/json';
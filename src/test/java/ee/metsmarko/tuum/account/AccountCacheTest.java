@@ -0,0 +1,116 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class AccountCacheTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final AccountMapper accountMapper = mock(AccountMapper.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final Account account = new Account(
+      accountId, UUID.randomUUID(), "EE", List.of(new AccountBalance(EUR, Money.zero(EUR)))
+  );
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void testReadThrough() {
+    AccountCache cache = createCache(true);
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    assertEquals(account, cache.getAccountById(accountId).orElseThrow());
+    assertEquals(account, cache.getAccountById(accountId).orElseThrow());
+
+    verify(accountMapper, times(1)).getAccountById(accountId);
+    assertEquals(1, cacheGets("hit"));
+    assertEquals(1, cacheGets("miss"));
+  }
+
+  @Test
+  void testMissingAccountIsNotCached() {
+    AccountCache cache = createCache(true);
+
+    assertTrue(cache.getAccountById(accountId).isEmpty());
+    assertTrue(cache.getAccountById(accountId).isEmpty());
+
+    verify(accountMapper, times(2)).getAccountById(accountId);
+  }
+
+  @Test
+  void testEvictAfterCommit() {
+    AccountCache cache = createCache(true);
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    cache.getAccountById(accountId);
+    TransactionSynchronizationManager.initSynchronization();
+
+    cache.evictAfterCommit(accountId);
+
+    cache.getAccountById(accountId);
+    verify(accountMapper, times(1)).getAccountById(accountId);
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+    cache.getAccountById(accountId);
+    verify(accountMapper, times(2)).getAccountById(accountId);
+  }
+
+  @Test
+  void testVersion() {
+    AccountCache cache = createCache(true);
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    assertTrue(cache.getVersion(accountId).isEmpty());
+    cache.getAccountById(accountId);
+    assertEquals(OptionalLong.of(0), cache.getVersion(accountId));
+
+    cache.evictAfterCommit(accountId);
+
+    assertTrue(cache.getVersion(accountId).isEmpty());
+  }
+
+  @Test
+  void testDisabled() {
+    AccountCache cache = createCache(false);
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    cache.getAccountById(accountId);
+    cache.getAccountById(accountId);
+    cache.evictAfterCommit(accountId);
+
+    verify(accountMapper, times(2)).getAccountById(accountId);
+    assertTrue(cache.getVersion(accountId).isEmpty());
+    assertTrue(meterRegistry.find("cache.gets").meters().isEmpty());
+  }
+
+  private AccountCache createCache(boolean enabled) {
+    return new AccountCache(
+        accountMapper, meterRegistry, enabled, 10, 100, Duration.ofMinutes(1)
+    );
+  }
+
+  private double cacheGets(String result) {
+    return meterRegistry.get("cache.gets")
+        .tags("cache", AccountCache.CACHE_NAME, "result", result)
+        .functionCounter().count();
+  }
+}
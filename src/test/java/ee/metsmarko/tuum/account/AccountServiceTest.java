@@ -1,14 +1,24 @@
 package ee.metsmarko.tuum.account;
 
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.SEK;
+import static ee.metsmarko.tuum.account.Currency.USD;
 import static ee.metsmarko.tuum.account.TransactionDirection.IN;
 import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
 import static java.util.Collections.emptySet;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -16,26 +26,42 @@ import static org.mockito.Mockito.when;
 import ee.metsmarko.tuum.account.event.AccountEventPublisher;
 import ee.metsmarko.tuum.exception.TuumException;
 import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import org.apache.ibatis.cursor.Cursor;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 
 class AccountServiceTest {
   private final UUID accountId = UUID.randomUUID();
   private final AccountMapper accountMapper = mock(AccountMapper.class);
   private final AccountEventPublisher eventPublisher = mock(AccountEventPublisher.class);
-  private final AccountService accountService = new AccountService(accountMapper, eventPublisher);
+  private final AccountCache accountCache = new AccountCache(
+      accountMapper, new SimpleMeterRegistry(), true, 10, 100, Duration.ofMinutes(1)
+  );
+  private final AccountService accountService = new AccountService(
+      accountMapper, new RowBalanceStore(accountMapper, 1), accountCache, eventPublisher
+  );
   private final Account account = new Account(
       accountId, UUID.randomUUID(), "EE",
       List.of(
-          new AccountBalance("USD", BigDecimal.ZERO),
-          new AccountBalance("EUR", BigDecimal.ZERO)
+          new AccountBalance(USD, Money.zero(USD)),
+          new AccountBalance(EUR, Money.zero(EUR))
       )
   );
 
@@ -47,11 +73,11 @@ class AccountServiceTest {
 
     assertEquals(accountId, account.getCustomerId());
     assertEquals("EE", account.getCountry());
-    assertEquals(BigDecimal.ZERO, account.getAccountBalances().get(0).getBalance());
-    assertEquals("USD", account.getAccountBalances().get(0).getCurrency());
+    assertEquals(Money.zero(USD), account.getAccountBalances().get(0).getBalance());
+    assertEquals(USD, account.getAccountBalances().get(0).getCurrency());
 
-    assertEquals(BigDecimal.ZERO, account.getAccountBalances().get(1).getBalance());
-    assertEquals("EUR", account.getAccountBalances().get(1).getCurrency());
+    assertEquals(Money.zero(EUR), account.getAccountBalances().get(1).getBalance());
+    assertEquals(EUR, account.getAccountBalances().get(1).getCurrency());
 
     verify(accountMapper).createAccount(account);
     verify(accountMapper).createAccountBalance(account);
@@ -100,58 +126,101 @@ class AccountServiceTest {
   void testCreateTransactionIn_Ok() throws TuumException {
     CreateTransactionRequest request =
         new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "ice cream");
-    Account account = new Account(
-        accountId, UUID.randomUUID(), "EE", List.of(new AccountBalance("EUR", BigDecimal.ZERO))
-    );
-    Account accountAfter = new Account(
-        accountId, UUID.randomUUID(), "EE", List.of(new AccountBalance("EUR", BigDecimal.TEN))
+    UUID transactionId = UUID.randomUUID();
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.credit(any(), any(), anyInt(), anyBoolean())).thenReturn(
+        new PostedTransaction(transactionId, eur("10"), 1)
     );
-    when(accountMapper.getAccountById(accountId)).thenReturn(account).thenReturn(accountAfter);
 
     CreateTransactionResponse transaction = accountService.createTransaction(accountId, request);
 
-    verify(accountMapper).increaseBalance(eq(accountId), eq("EUR"), eq(BigDecimal.TEN));
-    assertEquals(BigDecimal.TEN, transaction.currentBalance());
+    verifyPostedTransaction(captureTransaction(IN), request);
+    assertEquals(transactionId, transaction.transactionId());
+    assertEquals(eur("10"), transaction.currentBalance());
+    verify(accountMapper, never()).debit(any(), any(), anyInt(), anyBoolean());
     verify(eventPublisher).transactionCreated(any());
-    verify(eventPublisher).balanceChanged(transaction);
+    verify(eventPublisher).balanceChanged(transaction, 1);
+    // balance changed, the cached account is evicted
+    accountService.getAccountById(accountId);
+    verify(accountMapper, times(2)).getAccountById(accountId);
   }
 
   @Test
   void testCreateTransactionOut_Ok() throws TuumException {
     CreateTransactionRequest request =
         new CreateTransactionRequest(BigDecimal.TEN, "EUR", OUT, "ice cream");
-    AccountBalance balance = new AccountBalance("EUR", BigDecimal.TEN);
-    Account account = new Account(accountId, UUID.randomUUID(), "EE", List.of(balance));
-    Account accountAfter = new Account(
-        accountId, UUID.randomUUID(), "EE", List.of(new AccountBalance("EUR", BigDecimal.ZERO))
+    UUID transactionId = UUID.randomUUID();
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.debit(any(), any(), anyInt(), anyBoolean())).thenReturn(
+        new PostedTransaction(transactionId, Money.zero(EUR), 4)
     );
-    when(accountMapper.getAccountById(accountId)).thenReturn(account).thenReturn(accountAfter);
-    when(accountMapper.getBalanceForUpdate(eq(accountId), eq("EUR"))).thenReturn(balance);
 
     CreateTransactionResponse transaction = accountService.createTransaction(accountId, request);
 
-    verify(accountMapper).decreaseBalance(eq(accountId), eq("EUR"), eq(BigDecimal.TEN));
-    assertEquals(BigDecimal.ZERO, transaction.currentBalance());
-    verify(eventPublisher).transactionCreated(any());
-    verify(eventPublisher).balanceChanged(transaction);
+    verifyPostedTransaction(captureTransaction(OUT), request);
+    assertEquals(transactionId, transaction.transactionId());
+    assertEquals(Money.zero(EUR), transaction.currentBalance());
+    verify(accountMapper, never()).credit(any(), any(), anyInt(), anyBoolean());
+    ArgumentCaptor<Transaction> event = ArgumentCaptor.forClass(Transaction.class);
+    verify(eventPublisher).transactionCreated(event.capture());
+    assertEquals(transactionId, event.getValue().getId());
+    verify(eventPublisher).balanceChanged(transaction, 4);
   }
 
   @Test
   void testCreateTransactionOut_InsufficientFunds() {
     CreateTransactionRequest request =
         new CreateTransactionRequest(BigDecimal.valueOf(10.01), "EUR", OUT, "ice cream");
-    AccountBalance balance = new AccountBalance("EUR", BigDecimal.TEN);
-    Account account = new Account(accountId, UUID.randomUUID(), "EE", List.of(balance));
     when(accountMapper.getAccountById(accountId)).thenReturn(account);
-    when(accountMapper.getBalanceForUpdate(eq(accountId), eq("EUR"))).thenReturn(balance);
+    when(accountMapper.debit(any(), any(), anyInt(), anyBoolean())).thenReturn(null);
 
     TuumInvalidInputException ex = assertThrows(
         TuumInvalidInputException.class, () -> accountService.createTransaction(accountId, request)
     );
 
-    verify(accountMapper, never()).decreaseBalance(any(), any(), any());
     assertEquals("insufficient funds", ex.getMessage());
     verifyNoInteractions(eventPublisher);
+    accountService.getAccountById(accountId);
+    verify(accountMapper, times(1)).getAccountById(accountId);
+  }
+
+  @Test
+  void testCreateTransactionOut_DebitsAllSlots() throws TuumException {
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", OUT, "ice cream");
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.lockBalances(any())).thenReturn(
+        List.of(new LockedBalance(accountId, EUR, eur("15"), 3))
+    );
+
+    CreateTransactionResponse transaction = accountService.createTransaction(accountId, request);
+
+    assertEquals(eur("5"), transaction.currentBalance());
+    verify(accountMapper).updateBalances(
+        List.of(new BalanceUpdate(accountId, EUR, eur("5"), eur("-10"), 1))
+    );
+    verify(eventPublisher).balanceChanged(transaction, 4);
+    ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+    verify(accountMapper).insertTransaction(captor.capture(), isNull(), eq(eur("5")));
+    assertEquals(transaction.transactionId(), captor.getValue().getId());
+    verifyPostedTransaction(captor.getValue(), request);
+  }
+
+  @Test
+  void testCreateTransaction_GivenId() throws TuumException {
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", OUT, "ice cream");
+    UUID transactionId = UUID.randomUUID();
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.lockBalances(any())).thenReturn(
+        List.of(new LockedBalance(accountId, EUR, eur("15"), 0))
+    );
+
+    CreateTransactionResponse transaction =
+        accountService.createTransaction(accountId, request, null, transactionId);
+
+    assertEquals(transactionId, captureTransaction(OUT).getId());
+    assertEquals(transactionId, transaction.transactionId());
   }
 
   @Test
@@ -185,7 +254,7 @@ class AccountServiceTest {
   }
 
   @ParameterizedTest
-  @ValueSource(doubles = {-1, -0.00001, 0})
+  @ValueSource(doubles = {-1, -0.00001, 0, 0.001})
   void testCreateTransaction_InvalidAmount(double amount) {
     when(accountMapper.getAccountById(accountId)).thenReturn(account);
     verifyNewTransactionError(
@@ -215,24 +284,249 @@ class AccountServiceTest {
   @Test
   public void getTransactions() throws Exception {
     when(accountMapper.getAccountById(accountId)).thenReturn(account);
-    when(accountMapper.getTransactionsByAccountId(accountId)).thenReturn(List.of(
+    when(accountMapper.getTransactionsByAccountId(accountId, null, 101)).thenReturn(List.of(
         mock(Transaction.class), mock(Transaction.class)
     ));
 
-    List<Transaction> transactions = accountService.getTransactionsByAccountId(accountId);
+    TransactionPage page = accountService.getTransactionsByAccountId(accountId, null, 100);
+
+    assertEquals(2, page.transactions().size());
+    assertNull(page.nextCursor());
+  }
+
+  @Test
+  public void getTransactions_NextPage() throws Exception {
+    List<Transaction> transactions = List.of(
+        createTransaction(), createTransaction(), createTransaction()
+    );
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.getTransactionsByAccountId(accountId, null, 3)).thenReturn(transactions);
+
+    TransactionPage page = accountService.getTransactionsByAccountId(accountId, null, 2);
+
+    assertEquals(transactions.subList(0, 2), page.transactions());
+    assertNotNull(page.nextCursor());
+
+    accountService.getTransactionsByAccountId(accountId, page.nextCursor(), 2);
+
+    Transaction last = transactions.get(1);
+    verify(accountMapper).getTransactionsByAccountId(accountId, new TransactionCursor(
+        last.getCreatedAt().truncatedTo(ChronoUnit.MICROS).withOffsetSameInstant(ZoneOffset.UTC),
+        last.getId()
+    ), 3);
+  }
+
+  @Test
+  public void getTransactions_LimitIsCapped() throws Exception {
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    accountService.getTransactionsByAccountId(accountId, null, 1_000_000);
+
+    verify(accountMapper).getTransactionsByAccountId(
+        accountId, null, AccountService.MAX_PAGE_SIZE + 1
+    );
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, -1})
+  public void getTransactions_InvalidLimit(int limit) {
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> accountService.getTransactionsByAccountId(accountId, null, limit)
+    );
+
+    assertEquals("invalid limit", ex.getMessage());
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"not a cursor", "AAAA"})
+  public void getTransactions_InvalidCursor(String cursor) {
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> accountService.getTransactionsByAccountId(accountId, cursor, 10)
+    );
 
-    assertEquals(2, transactions.size());
+    assertEquals("invalid cursor", ex.getMessage());
   }
 
   @Test
   public void getTransactions_MissingAccount() {
     TuumInvalidInputException ex = assertThrows(
-        TuumInvalidInputException.class, () -> accountService.getTransactionsByAccountId(accountId)
+        TuumInvalidInputException.class,
+        () -> accountService.getTransactionsByAccountId(accountId, null, 10)
     );
 
     assertEquals("invalid account", ex.getMessage());
   }
 
+  @Test
+  public void getSummary() throws TuumException {
+    LocalDate day = LocalDate.of(2024, 3, 1);
+    List<DailyTurnover> days = List.of(
+        new DailyTurnover(day, EUR, eur("15"), 2, eur("3"), 1)
+    );
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+    when(accountMapper.getTurnover(accountId, day, day.plusDays(30))).thenReturn(days);
+
+    AccountSummary summary = accountService.getSummary(accountId, day, day.plusDays(30));
+
+    assertEquals(new AccountSummary(accountId, day, day.plusDays(30), days), summary);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {-1, AccountService.MAX_SUMMARY_DAYS})
+  public void getSummary_InvalidRange(int days) {
+    LocalDate from = LocalDate.of(2024, 3, 1);
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> accountService.getSummary(accountId, from, from.plusDays(days))
+    );
+
+    assertEquals("invalid date range", ex.getMessage());
+    verifyNoInteractions(accountMapper);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void exportTransactions() throws Exception {
+    List<Transaction> transactions = List.of(createTransaction(), createTransaction());
+    Cursor<Transaction> cursor = mock(Cursor.class);
+    when(cursor.iterator()).thenReturn(transactions.iterator());
+    when(accountMapper.streamTransactionsByAccountId(accountId)).thenReturn(cursor);
+    List<Transaction> written = new ArrayList<>();
+
+    accountService.exportTransactions(accountId, written::add);
+
+    assertEquals(transactions, written);
+    verify(cursor).close();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void createTransactions() throws Exception {
+    UUID otherAccountId = UUID.randomUUID();
+    when(accountMapper.lockBalances(any())).thenReturn(List.of(
+        new LockedBalance(accountId, EUR, eur("10"), 5),
+        new LockedBalance(otherAccountId, EUR, Money.zero(EUR), 2)
+    ));
+    when(accountMapper.getAccountById(accountId)).thenReturn(account);
+
+    BatchTransactionResponse response = accountService.createTransactions(
+        new BatchTransactionRequest(List.of(
+            new BatchTransactionItem(accountId, BigDecimal.valueOf(4), "EUR", OUT, "a"),
+            new BatchTransactionItem(otherAccountId, BigDecimal.ONE, "EUR", OUT, "b"),
+            new BatchTransactionItem(accountId, BigDecimal.valueOf(6), "EUR", OUT, "c"),
+            new BatchTransactionItem(accountId, BigDecimal.ONE, "EUR", OUT, "d"),
+            new BatchTransactionItem(accountId, BigDecimal.ONE, "EUR", null, "e"),
+            new BatchTransactionItem(accountId, BigDecimal.ONE, "SEK", IN, "f"),
+            new BatchTransactionItem(otherAccountId, BigDecimal.ONE, "EUR", IN, "g")
+        ))
+    );
+
+    List<BatchTransactionResult> results = response.results();
+    assertEquals(eur("6"), results.get(0).transaction().currentBalance());
+    assertEquals("insufficient funds", results.get(1).error());
+    assertEquals(Money.zero(EUR), results.get(2).transaction().currentBalance());
+    assertEquals("insufficient funds", results.get(3).error());
+    assertEquals("direction is missing", results.get(4).error());
+    assertEquals("no balance for given currency", results.get(5).error());
+    assertEquals(eur("1"), results.get(6).transaction().currentBalance());
+
+    ArgumentCaptor<Collection<BalanceKey>> keys = ArgumentCaptor.forClass(Collection.class);
+    verify(accountMapper).lockBalances(keys.capture());
+    assertEquals(Set.of(
+        new BalanceKey(accountId, EUR), new BalanceKey(accountId, SEK),
+        new BalanceKey(otherAccountId, EUR)
+    ), Set.copyOf(keys.getValue()));
+    ArgumentCaptor<Collection<BalanceUpdate>> balances = ArgumentCaptor.forClass(Collection.class);
+    verify(accountMapper).updateBalances(balances.capture());
+    assertEquals(Set.of(
+        new BalanceUpdate(accountId, EUR, Money.zero(EUR), eur("-10"), 2),
+        new BalanceUpdate(otherAccountId, EUR, eur("1"), eur("1"), 1)
+    ), Set.copyOf(balances.getValue()));
+    ArgumentCaptor<List<Transaction>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(accountMapper).insertTransactions(inserted.capture());
+    assertEquals(
+        List.of("a", "c", "g"),
+        inserted.getValue().stream().map(Transaction::getDescription).toList()
+    );
+    assertEquals(results.get(0).transaction().transactionId(), inserted.getValue().get(0).getId());
+    // every transaction gets the next version of its balance
+    verify(eventPublisher).transactionsPosted(eq(List.of(
+        results.get(0).transaction(), results.get(2).transaction(), results.get(6).transaction()
+    )), aryEq(new long[] {6, 7, 3}));
+  }
+
+  @Test
+  public void createTransactions_NothingPosted() throws Exception {
+    BatchTransactionResponse response = accountService.createTransactions(
+        new BatchTransactionRequest(List.of(
+            new BatchTransactionItem(accountId, BigDecimal.ONE, "EUR", IN, "a")
+        ))
+    );
+
+    assertEquals("account is missing", response.results().get(0).error());
+    verify(accountMapper, never()).updateBalances(any());
+    verify(accountMapper, never()).insertTransactions(any());
+    verifyNoInteractions(eventPublisher);
+  }
+
+  @Test
+  public void createTransactions_TooMany() {
+    BatchTransactionItem item = new BatchTransactionItem(accountId, BigDecimal.ONE, "EUR", IN, "a");
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> accountService.createTransactions(new BatchTransactionRequest(
+            Collections.nCopies(AccountService.MAX_BATCH_SIZE + 1, item)
+        ))
+    );
+
+    assertEquals("too many transactions, max is 1000", ex.getMessage());
+    verifyNoInteractions(accountMapper);
+  }
+
+  @Test
+  public void createTransactions_Empty() {
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> accountService.createTransactions(new BatchTransactionRequest(List.of()))
+    );
+
+    assertEquals("transactions missing", ex.getMessage());
+  }
+
+  private Transaction createTransaction() {
+    return new Transaction(
+        UUID.randomUUID(), accountId, eur("1"), EUR, IN, "desc", OffsetDateTime.now()
+    );
+  }
+
+  private static Money eur(String amount) {
+    return Money.of(new BigDecimal(amount), EUR);
+  }
+
+  private Transaction captureTransaction(TransactionDirection direction) {
+    ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+    if (direction == IN) {
+      verify(accountMapper).credit(captor.capture(), isNull(), eq(0), eq(true));
+    } else {
+      verify(accountMapper).debit(captor.capture(), isNull(), eq(0), eq(true));
+    }
+    return captor.getValue();
+  }
+
+  private void verifyPostedTransaction(Transaction transaction, CreateTransactionRequest request) {
+    assertEquals(accountId, transaction.getAccountId());
+    assertEquals(0, request.amount().compareTo(transaction.getAmount().toBigDecimal()));
+    assertEquals(request.currency(), transaction.getCurrency().name());
+    assertEquals(request.direction(), transaction.getDirection());
+    assertEquals(request.description(), transaction.getDescription());
+  }
+
   private void verifyNewTransactionError(CreateTransactionRequest request, String errorMessage) {
     TuumInvalidInputException ex = assertThrows(
         TuumInvalidInputException.class, () -> accountService.createTransaction(accountId, request)
@@ -0,0 +1,218 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.account.AsyncTransactionStatus.Status;
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import ee.metsmarko.tuum.exception.TuumUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncTransactionProcessorTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final AccountService accountService = mock(AccountService.class);
+  private final AsyncTransactionProcessor processor = new AsyncTransactionProcessor(
+      accountService, new SimpleMeterRegistry(), 2, 3, 100, Duration.ofMinutes(1),
+      Duration.ofSeconds(10)
+  );
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    processor.destroy();
+  }
+
+  @Test
+  void testPostedTransaction() throws Exception {
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "desc");
+    when(accountService.createTransaction(eq(accountId), eq(request), isNull(), any()))
+        .thenAnswer(invocation -> response(invocation.getArgument(3)));
+
+    AsyncTransactionStatus pending = processor.submit(accountId, request);
+
+    assertEquals(Status.PENDING, pending.status());
+    AsyncTransactionStatus posted = awaitDone(pending.transactionId());
+    assertEquals(Status.POSTED, posted.status());
+    assertEquals(pending.transactionId(), posted.transaction().transactionId());
+  }
+
+  @Test
+  void testRejectedTransaction() throws Exception {
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.TEN, "EUR", OUT, "desc");
+    when(accountService.createTransaction(eq(accountId), eq(request), isNull(), any()))
+        .thenThrow(new TuumInvalidInputException("insufficient funds"));
+
+    AsyncTransactionStatus status =
+        awaitDone(processor.submit(accountId, request).transactionId());
+
+    assertEquals(Status.REJECTED, status.status());
+    assertEquals("insufficient funds", status.error());
+  }
+
+  @Test
+  void testFailedTransaction() throws Exception {
+    when(accountService.createTransaction(eq(accountId), any(), isNull(), any()))
+        .thenThrow(new IllegalStateException("db"));
+
+    AsyncTransactionStatus status = awaitDone(processor.submit(
+        accountId, new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "desc")
+    ).transactionId());
+
+    assertEquals(Status.FAILED, status.status());
+  }
+
+  @Test
+  void testStatusOfOtherAccount() throws TuumException {
+    AsyncTransactionStatus pending = processor.submit(
+        accountId, new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "desc")
+    );
+
+    assertTrue(processor.getStatus(UUID.randomUUID(), pending.transactionId()).isEmpty());
+  }
+
+  @Test
+  void testStatusOfExpiredTransactionIsReadFromDatabase() {
+    UUID transactionId = UUID.randomUUID();
+    when(accountService.getTransaction(accountId, transactionId))
+        .thenReturn(Optional.of(response(transactionId)));
+
+    AsyncTransactionStatus status = processor.getStatus(accountId, transactionId).orElseThrow();
+
+    assertEquals(Status.POSTED, status.status());
+    assertEquals(transactionId, status.transaction().transactionId());
+    assertTrue(processor.getStatus(accountId, UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  void testQueuedTransactionsArePostedOnDestroy() throws Exception {
+    CountDownLatch postStarted = new CountDownLatch(1);
+    CountDownLatch releasePost = new CountDownLatch(1);
+    when(accountService.createTransaction(eq(accountId), any(), isNull(), any()))
+        .thenAnswer(invocation -> {
+          postStarted.countDown();
+          releasePost.await(5, TimeUnit.SECONDS);
+          return response(invocation.getArgument(3));
+        });
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "desc");
+    List<UUID> ids = new ArrayList<>();
+    ids.add(processor.submit(accountId, request).transactionId());
+    postStarted.await(5, TimeUnit.SECONDS);
+    ids.add(processor.submit(accountId, request).transactionId());
+    ids.add(processor.submit(accountId, request).transactionId());
+
+    Thread stopping = new Thread(() -> {
+      try {
+        processor.destroy();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    stopping.start();
+    for (int i = 0; i < 500 && stopping.getState() != Thread.State.TIMED_WAITING; i++) {
+      Thread.sleep(10);
+    }
+    TuumUnavailableException ex = assertThrows(
+        TuumUnavailableException.class, () -> processor.submit(accountId, request)
+    );
+    assertEquals("service is stopping", ex.getMessage());
+    releasePost.countDown();
+    stopping.join(5000);
+
+    for (UUID id : ids) {
+      assertEquals(Status.POSTED, processor.getStatus(accountId, id).orElseThrow().status());
+    }
+  }
+
+  @Test
+  void testDrainTimeoutIsAtLeastShutdownTimeout() {
+    assertEquals(Duration.ofSeconds(10), processor.drainTimeout());
+  }
+
+  @Test
+  void testTransactionsOfAccountArePostedInOrder() throws Exception {
+    List<String> posted = Collections.synchronizedList(new ArrayList<>());
+    when(accountService.createTransaction(eq(accountId), any(), isNull(), any()))
+        .thenAnswer(invocation -> {
+          posted.add(invocation.getArgument(1, CreateTransactionRequest.class).description());
+          return response(invocation.getArgument(3));
+        });
+
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ids.add(processor.submit(
+          accountId, new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "t" + i)
+      ).transactionId());
+    }
+    for (UUID id : ids) {
+      awaitDone(id);
+    }
+
+    assertEquals(List.of("t0", "t1", "t2"), posted);
+  }
+
+  @Test
+  void testFullPartition() throws Exception {
+    CountDownLatch postStarted = new CountDownLatch(1);
+    CountDownLatch releasePost = new CountDownLatch(1);
+    when(accountService.createTransaction(eq(accountId), any(), isNull(), any()))
+        .thenAnswer(invocation -> {
+          postStarted.countDown();
+          releasePost.await(5, TimeUnit.SECONDS);
+          return response(invocation.getArgument(3));
+        });
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "desc");
+
+    processor.submit(accountId, request);
+    postStarted.await(5, TimeUnit.SECONDS);
+    for (int i = 0; i < 3; i++) {
+      processor.submit(accountId, request);
+    }
+
+    TuumUnavailableException ex = assertThrows(
+        TuumUnavailableException.class, () -> processor.submit(accountId, request)
+    );
+    assertEquals("too many pending transactions", ex.getMessage());
+    releasePost.countDown();
+  }
+
+  private CreateTransactionResponse response(UUID transactionId) {
+    return new CreateTransactionResponse(
+        transactionId, accountId, new Money(1000, EUR), EUR, IN, "desc", new Money(1000, EUR)
+    );
+  }
+
+  private AsyncTransactionStatus awaitDone(UUID transactionId) throws InterruptedException {
+    for (int i = 0; i < 500; i++) {
+      AsyncTransactionStatus status = processor.getStatus(accountId, transactionId).orElseThrow();
+      if (status.status() != Status.PENDING) {
+        return status;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("transaction " + transactionId + " is still pending");
+  }
+}
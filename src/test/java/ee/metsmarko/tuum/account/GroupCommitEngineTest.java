@@ -0,0 +1,219 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import ee.metsmarko.tuum.exception.TuumUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GroupCommitEngineTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final AccountService accountService = mock(AccountService.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final GroupCommitEngine engine =
+      new GroupCommitEngine(accountService, meterRegistry, 4, 2, 100, 3);
+  private final List<Integer> batchSizes = new ArrayList<>();
+  private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    callers.shutdownNow();
+    engine.destroy();
+  }
+
+  @Test
+  void testCreateTransaction() throws TuumException {
+    postWithRunningBalance(null);
+
+    CreateTransactionResponse response = engine.createTransaction(
+        accountId, new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "desc")
+    );
+
+    assertEquals(new Money(1000, EUR), response.currentBalance());
+    assertEquals(List.of(1), batchSizes);
+  }
+
+  @Test
+  void testRejectedTransaction() throws TuumException {
+    when(accountService.createTransactions(any())).thenReturn(new BatchTransactionResponse(
+        List.of(BatchTransactionResult.rejected("insufficient funds"))
+    ));
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> engine.createTransaction(
+            accountId, new CreateTransactionRequest(BigDecimal.TEN, "EUR", OUT, "desc")
+        )
+    );
+
+    assertEquals("insufficient funds", ex.getMessage());
+  }
+
+  @Test
+  void testFailedCommit() throws TuumException {
+    when(accountService.createTransactions(any())).thenThrow(new IllegalStateException("db"));
+
+    IllegalStateException ex = assertThrows(
+        IllegalStateException.class,
+        () -> engine.createTransaction(
+            accountId, new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "desc")
+        )
+    );
+
+    assertEquals("db", ex.getMessage());
+  }
+
+  @Test
+  void testConcurrentTransactionsAreMerged() throws Exception {
+    CountDownLatch firstCommitStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+    postWithRunningBalance(() -> {
+      firstCommitStarted.countDown();
+      releaseFirstCommit.await(5, TimeUnit.SECONDS);
+    });
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "desc");
+
+    List<CompletableFuture<CreateTransactionResponse>> responses = new ArrayList<>();
+    responses.add(submit(request));
+    firstCommitStarted.await(5, TimeUnit.SECONDS);
+    for (int i = 0; i < 3; i++) {
+      responses.add(submit(request));
+    }
+    while (meterRegistry.get("tuum.group-commit.queued").gauge().value() < 3) {
+      Thread.sleep(1);
+    }
+    releaseFirstCommit.countDown();
+
+    assertEquals(
+        Set.of(new Money(100, EUR), new Money(200, EUR), new Money(300, EUR), new Money(400, EUR)),
+        responses.stream().map(r -> r.join().currentBalance()).collect(Collectors.toSet())
+    );
+    assertEquals(List.of(1, 3), batchSizes);
+  }
+
+  @Test
+  void testTooManyQueuedTransactions() throws Exception {
+    CountDownLatch firstCommitStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+    postWithRunningBalance(() -> {
+      firstCommitStarted.countDown();
+      releaseFirstCommit.await(5, TimeUnit.SECONDS);
+    });
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "desc");
+
+    List<CompletableFuture<CreateTransactionResponse>> responses = new ArrayList<>();
+    responses.add(submit(request));
+    firstCommitStarted.await(5, TimeUnit.SECONDS);
+    // the first transaction is being posted, the next three fill the queue
+    for (int i = 0; i < 3; i++) {
+      responses.add(engine.submit(accountId, request));
+    }
+    ExecutionException ex = assertThrows(
+        ExecutionException.class, () -> engine.submit(accountId, request).get()
+    );
+    releaseFirstCommit.countDown();
+
+    assertInstanceOf(TuumUnavailableException.class, ex.getCause());
+    assertEquals(
+        Set.of(new Money(100, EUR), new Money(200, EUR), new Money(300, EUR), new Money(400, EUR)),
+        responses.stream().map(r -> r.join().currentBalance()).collect(Collectors.toSet())
+    );
+  }
+
+  @Test
+  void testQueuedTransactionsFailOnShutdown() throws Exception {
+    CountDownLatch firstCommitStarted = new CountDownLatch(1);
+    CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+    postWithRunningBalance(() -> {
+      firstCommitStarted.countDown();
+      releaseFirstCommit.await(5, TimeUnit.SECONDS);
+    });
+    CreateTransactionRequest request =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "desc");
+
+    CompletableFuture<CreateTransactionResponse> first = submit(request);
+    firstCommitStarted.await(5, TimeUnit.SECONDS);
+    CompletableFuture<CreateTransactionResponse> queued = engine.submit(accountId, request);
+    // the batch being posted completes after the writers are shut down
+    CompletableFuture.runAsync(
+        releaseFirstCommit::countDown,
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS)
+    );
+    engine.destroy();
+
+    assertEquals(new Money(100, EUR), first.join().currentBalance());
+    ExecutionException ex = assertThrows(ExecutionException.class, queued::get);
+    assertInstanceOf(TuumUnavailableException.class, ex.getCause());
+    ex = assertThrows(
+        ExecutionException.class, () -> engine.submit(accountId, request).get()
+    );
+    assertInstanceOf(TuumUnavailableException.class, ex.getCause());
+    assertEquals(0, meterRegistry.get("tuum.group-commit.queued").gauge().value());
+  }
+
+  private CompletableFuture<CreateTransactionResponse> submit(CreateTransactionRequest request) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return engine.createTransaction(accountId, request);
+      } catch (TuumException e) {
+        throw new IllegalStateException(e);
+      }
+    }, callers);
+  }
+
+  /**
+   * Posts credits against a balance that starts at zero, the way AccountService posts a batch.
+   */
+  private void postWithRunningBalance(BeforeCommit beforeCommit) throws TuumException {
+    Money[] balance = {Money.zero(EUR)};
+    when(accountService.createTransactions(any())).thenAnswer(invocation -> {
+      if (beforeCommit != null && batchSizes.isEmpty()) {
+        beforeCommit.run();
+      }
+      List<BatchTransactionItem> items =
+          invocation.getArgument(0, BatchTransactionRequest.class).transactions();
+      batchSizes.add(items.size());
+      List<BatchTransactionResult> results = new ArrayList<>();
+      for (BatchTransactionItem item : items) {
+        Money amount = Money.of(item.amount(), EUR);
+        balance[0] = balance[0].plus(amount);
+        results.add(BatchTransactionResult.posted(new CreateTransactionResponse(
+            UUID.randomUUID(), item.accountId(), amount, EUR, item.direction(),
+            item.description(), balance[0]
+        )));
+      }
+      return new BatchTransactionResponse(results);
+    });
+  }
+
+  @FunctionalInterface
+  private interface BeforeCommit {
+    void run() throws InterruptedException;
+  }
+}
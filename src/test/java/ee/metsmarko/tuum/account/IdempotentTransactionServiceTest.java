@@ -0,0 +1,141 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.exception.TuumException;
+import ee.metsmarko.tuum.exception.TuumInvalidInputException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.dao.DuplicateKeyException;
+
+class IdempotentTransactionServiceTest {
+  private static final String KEY = "key-1";
+  private final UUID accountId = UUID.randomUUID();
+  private final AccountService accountService = mock(AccountService.class);
+  private final AccountMapper accountMapper = mock(AccountMapper.class);
+  private final IdempotentTransactionService service = new IdempotentTransactionService(
+      accountService, accountMapper, Optional.empty(), new SimpleMeterRegistry(), 10,
+      Duration.ofMinutes(1)
+  );
+  private final CreateTransactionRequest request =
+      new CreateTransactionRequest(BigDecimal.TEN, "EUR", IN, "ice cream");
+  private final CreateTransactionResponse response = new CreateTransactionResponse(
+      UUID.randomUUID(), accountId, new Money(1000, EUR), EUR, IN, "ice cream",
+      new Money(1000, EUR)
+  );
+
+  @Test
+  void testWithoutKey() throws TuumException {
+    when(accountService.createTransaction(accountId, request)).thenReturn(response);
+
+    assertSame(response, service.createTransaction(accountId, request, null));
+
+    verify(accountMapper, never()).findTransactionByIdempotencyKey(any(), any());
+  }
+
+  @Test
+  void testWithoutKeyUsesGroupCommit() throws TuumException {
+    GroupCommitEngine groupCommitEngine = mock(GroupCommitEngine.class);
+    when(groupCommitEngine.createTransaction(accountId, request)).thenReturn(response);
+    IdempotentTransactionService groupCommitService = new IdempotentTransactionService(
+        accountService, accountMapper, Optional.of(groupCommitEngine), new SimpleMeterRegistry(),
+        10, Duration.ofMinutes(1)
+    );
+
+    assertSame(response, groupCommitService.createTransaction(accountId, request, null));
+
+    verify(accountService, never()).createTransaction(any(), any());
+  }
+
+  @Test
+  void testSubmitDoesNotWaitForGroupCommit() throws TuumException {
+    GroupCommitEngine groupCommitEngine = mock(GroupCommitEngine.class);
+    CompletableFuture<CreateTransactionResponse> pending = new CompletableFuture<>();
+    when(groupCommitEngine.submit(accountId, request)).thenReturn(pending);
+    IdempotentTransactionService groupCommitService = new IdempotentTransactionService(
+        accountService, accountMapper, Optional.of(groupCommitEngine), new SimpleMeterRegistry(),
+        10, Duration.ofMinutes(1)
+    );
+
+    assertSame(pending, groupCommitService.submitTransaction(accountId, request, null));
+  }
+
+  @Test
+  void testSubmitWithKeyIsCompleted() throws TuumException {
+    when(accountService.createTransaction(accountId, request, KEY)).thenReturn(response);
+
+    assertSame(response, service.submitTransaction(accountId, request, KEY).join());
+  }
+
+  @Test
+  void testRetryIsServedFromCache() throws TuumException {
+    when(accountService.createTransaction(accountId, request, KEY)).thenReturn(response);
+
+    assertSame(response, service.createTransaction(accountId, request, KEY));
+    assertSame(response, service.createTransaction(accountId, request, KEY));
+
+    verify(accountService, times(1)).createTransaction(accountId, request, KEY);
+    verify(accountMapper, times(1)).findTransactionByIdempotencyKey(accountId, KEY);
+  }
+
+  @Test
+  void testRetryIsServedFromDatabase() throws TuumException {
+    when(accountMapper.findTransactionByIdempotencyKey(accountId, KEY)).thenReturn(response);
+
+    assertSame(response, service.createTransaction(accountId, request, KEY));
+
+    verify(accountService, never()).createTransaction(any(), any(), any());
+  }
+
+  @Test
+  void testConcurrentDuplicate() throws TuumException {
+    when(accountMapper.findTransactionByIdempotencyKey(accountId, KEY))
+        .thenReturn(null)
+        .thenReturn(response);
+    when(accountService.createTransaction(accountId, request, KEY))
+        .thenThrow(new DuplicateKeyException("duplicate"));
+
+    assertSame(response, service.createTransaction(accountId, request, KEY));
+  }
+
+  @Test
+  void testKeyUsedForDifferentTransaction() {
+    when(accountMapper.findTransactionByIdempotencyKey(accountId, KEY)).thenReturn(response);
+    CreateTransactionRequest other =
+        new CreateTransactionRequest(BigDecimal.ONE, "EUR", IN, "ice cream");
+
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class, () -> service.createTransaction(accountId, other, KEY)
+    );
+
+    assertEquals("idempotency key is used for a different transaction", ex.getMessage());
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, IdempotentTransactionService.MAX_KEY_LENGTH + 1})
+  void testInvalidKey(int length) {
+    TuumInvalidInputException ex = assertThrows(
+        TuumInvalidInputException.class,
+        () -> service.createTransaction(accountId, request, "k".repeat(length))
+    );
+
+    assertEquals("invalid idempotency key", ex.getMessage());
+  }
+}
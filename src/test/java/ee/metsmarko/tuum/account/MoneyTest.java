@@ -0,0 +1,65 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.USD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MoneyTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @ParameterizedTest
+  @CsvSource({"12.34, 1234", "12.3, 1230", "12, 1200", "0.010, 1", "-5.5, -550"})
+  void testOf(String amount, long minorUnits) {
+    assertEquals(new Money(minorUnits, EUR), Money.of(new BigDecimal(amount), EUR));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"0.001", "1e30"})
+  void testOfDoesNotFit(String amount) {
+    assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal(amount), EUR));
+  }
+
+  @Test
+  void testArithmetic() {
+    Money ten = new Money(1000, EUR);
+
+    assertEquals(new Money(1001, EUR), ten.plus(new Money(1, EUR)));
+    assertEquals(new Money(-1, EUR), Money.zero(EUR).minus(new Money(1, EUR)));
+    assertEquals(1, ten.compareTo(new Money(999, EUR)));
+    assertEquals(new BigDecimal("10.00"), ten.toBigDecimal());
+  }
+
+  @Test
+  void testOverflow() {
+    Money max = new Money(Long.MAX_VALUE, EUR);
+
+    assertThrows(ArithmeticException.class, () -> max.plus(new Money(1, EUR)));
+  }
+
+  @Test
+  void testDifferentCurrencies() {
+    IllegalArgumentException ex = assertThrows(
+        IllegalArgumentException.class, () -> Money.zero(EUR).plus(Money.zero(USD))
+    );
+
+    assertEquals("USD amount used with EUR", ex.getMessage());
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+      "1234, 12.34", "5, 0.05", "-100, -1.00", "0, 0.00",
+      "-9223372036854775808, -92233720368547758.08"
+  })
+  void testJson(long minorUnits, String json) throws JsonProcessingException {
+    assertEquals(json, mapper.writeValueAsString(new Money(minorUnits, EUR)));
+  }
+}
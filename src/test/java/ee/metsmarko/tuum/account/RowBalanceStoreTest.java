@@ -0,0 +1,69 @@
+package ee.metsmarko.tuum.account;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+class RowBalanceStoreTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final Set<BalanceKey> keys = Set.of(new BalanceKey(accountId, EUR));
+  private final AccountMapper accountMapper = mock(AccountMapper.class);
+
+  @Test
+  void testSlotsAreCreatedBeforeLocking() {
+    RowBalanceStore store = new RowBalanceStore(accountMapper, 4);
+
+    store.lockBalances(keys);
+
+    InOrder order = inOrder(accountMapper);
+    order.verify(accountMapper).createBalanceSlots(keys, 4);
+    order.verify(accountMapper).lockBalances(keys);
+  }
+
+  @Test
+  void testSingleSlotIsLockedAsIs() {
+    new RowBalanceStore(accountMapper, 1).lockBalances(keys);
+
+    verify(accountMapper, never()).createBalanceSlots(any(), anyInt());
+    verify(accountMapper).lockBalances(keys);
+  }
+
+  @Test
+  void testDebitOfAllSlotsCreatesSlotsFirst() {
+    RowBalanceStore store = new RowBalanceStore(accountMapper, 4);
+    Transaction transaction = new Transaction(null, accountId, eur(7), EUR, OUT, "desc", null);
+    when(accountMapper.lockBalances(keys))
+        .thenReturn(List.of(new LockedBalance(accountId, EUR, eur(10), 5)));
+
+    PostedTransaction posted = store.debit(transaction, null);
+
+    assertEquals(eur(3), posted.balance());
+    assertEquals(6, posted.version());
+    InOrder order = inOrder(accountMapper);
+    order.verify(accountMapper).debit(eq(transaction), isNull(), anyInt(), anyBoolean());
+    order.verify(accountMapper).createBalanceSlots(keys, 4);
+    order.verify(accountMapper).lockBalances(keys);
+    order.verify(accountMapper).updateBalances(any());
+  }
+
+  private static Money eur(long amount) {
+    return Money.of(BigDecimal.valueOf(amount), EUR);
+  }
+}
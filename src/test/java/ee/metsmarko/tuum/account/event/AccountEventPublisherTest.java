@@ -1,67 +1,65 @@
 package ee.metsmarko.tuum.account.event;
 
-
+import static ee.metsmarko.tuum.account.Currency.EUR;
 import static ee.metsmarko.tuum.account.TransactionDirection.IN;
 import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import ee.metsmarko.tuum.account.Account;
 import ee.metsmarko.tuum.account.AccountBalance;
 import ee.metsmarko.tuum.account.CreateTransactionResponse;
+import ee.metsmarko.tuum.account.Money;
 import ee.metsmarko.tuum.account.Transaction;
 import ee.metsmarko.tuum.account.TransactionDirection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.springframework.amqp.core.TopicExchange;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 
 class AccountEventPublisherTest {
 
-  private final RabbitTemplate template = mock(RabbitTemplate.class);
+  private final EventSink eventSink = mock(EventSink.class);
   private final ObjectMapper mapper = new ObjectMapper();
-  private final AccountEventPublisher publisher = new AccountEventPublisher(
-      template,
-      new TopicExchange("topic"),
-      mapper
-  );
-  private static final String EXCHANGE_NAME = "topic";
-  private final ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AccountEventPublisher publisher =
+      new AccountEventPublisher(eventSink, new JsonEventCodec(mapper), meterRegistry);
 
   @Test
   void testAccountCreated() throws IOException {
     Account account = new Account(
         UUID.randomUUID(), UUID.randomUUID(), "EE",
-        List.of(new AccountBalance("EUR", BigDecimal.ZERO))
+        List.of(new AccountBalance(EUR, Money.zero(EUR)))
     );
 
     publisher.accountCreated(account);
 
-    verify(template).convertAndSend(eq(EXCHANGE_NAME), eq("account.create"), captor.capture());
-    AccountCreateEvent event = mapper.readValue(captor.getValue(), AccountCreateEvent.class);
+    AccountCreateEvent event =
+        mapper.readValue(captureEvent("account.create"), AccountCreateEvent.class);
     assertEquals(account.getId(), event.accountId());
   }
 
   @Test
   void testTransactionCreated() throws IOException {
     Transaction transaction = new Transaction(
-        UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN,
-        "EUR", IN, "desc");
+        UUID.randomUUID(), UUID.randomUUID(), new Money(1000, EUR),
+        EUR, IN, "desc", null);
 
     publisher.transactionCreated(transaction);
 
-    verify(template).convertAndSend(
-        eq(EXCHANGE_NAME), eq("account.transaction.create"), captor.capture()
-    );
     TransactionCreateEvent event =
-        mapper.readValue(captor.getValue(), TransactionCreateEvent.class);
+        mapper.readValue(captureEvent("account.transaction.create"), TransactionCreateEvent.class);
     assertEquals(transaction.getId(), event.transactionId());
     assertEquals(transaction.getAccountId(), event.accountId());
     assertEquals(transaction.getAmount(), event.amount());
@@ -81,18 +79,71 @@ class AccountEventPublisherTest {
 
   private void verifyBalanceChange(String key, TransactionDirection direction) throws IOException {
     CreateTransactionResponse transaction = new CreateTransactionResponse(
-        UUID.randomUUID(), UUID.randomUUID(), BigDecimal.ONE,
-        "EUR", direction, "desc", BigDecimal.TEN);
+        UUID.randomUUID(), UUID.randomUUID(), new Money(100, EUR),
+        EUR, direction, "desc", new Money(1000, EUR));
 
-    publisher.balanceChanged(transaction);
+    publisher.balanceChanged(transaction, 7);
 
-    verify(template).convertAndSend(
-        eq(EXCHANGE_NAME), eq(key), captor.capture()
+    BalanceChangeEvent event = mapper.readValue(captureEvent(key), BalanceChangeEvent.class);
+    assertEquals(1, meterRegistry.get("tuum.events.publish").timer().count());
+    assertEquals(
+        1, meterRegistry.get("tuum.events.serialization").tag("key", key).timer().count()
     );
-    BalanceChangeEvent event = mapper.readValue(captor.getValue(), BalanceChangeEvent.class);
     assertEquals(transaction.accountId(), event.accountId());
     assertEquals(transaction.amount(), event.amount());
     assertEquals(transaction.currentBalance(), event.newBalance());
     assertEquals(transaction.currency(), event.currency());
+    assertEquals(7, event.version());
+  }
+
+  @Test
+  void testSerializationErrorIsDeadLettered() throws IOException {
+    ObjectMapper failingMapper = mock(ObjectMapper.class);
+    when(failingMapper.writeValueAsBytes(any())).thenThrow(new JsonProcessingException("boom") {
+    });
+    AccountEventPublisher failingPublisher =
+        new AccountEventPublisher(eventSink, new JsonEventCodec(failingMapper), meterRegistry);
+    UUID accountId = UUID.randomUUID();
+
+    failingPublisher.accountCreated(
+        new Account(accountId, UUID.randomUUID(), "EE", List.of())
+    );
+
+    byte[] payload = captureEvent("dead-letter.account.create", "text/plain");
+    assertEquals(
+        new AccountCreateEvent(accountId).toString(), new String(payload, StandardCharsets.UTF_8)
+    );
+    assertEquals(1, meterRegistry.counter(
+        "tuum.events.serialization.errors", "key", "account.create"
+    ).count());
+  }
+
+  @Test
+  void testPublishErrorIsCounted() {
+    doThrow(new IllegalStateException("boom")).when(eventSink).publish(any());
+
+    assertThrows(IllegalStateException.class, () -> publisher.accountCreated(
+        new Account(UUID.randomUUID(), UUID.randomUUID(), "EE", List.of())
+    ));
+
+    assertEquals(1, meterRegistry.counter(
+        "tuum.events.publish.errors", "exception", "IllegalStateException"
+    ).count());
+  }
+
+  @SuppressWarnings("unchecked")
+  private byte[] captureEvent(String key) {
+    return captureEvent(key, "application/json");
+  }
+
+  @SuppressWarnings("unchecked")
+  private byte[] captureEvent(String key, String contentType) {
+    ArgumentCaptor<List<EventMessage>> captor = ArgumentCaptor.forClass(List.class);
+    verify(eventSink).publish(captor.capture());
+    assertEquals(1, captor.getValue().size());
+    EventMessage message = captor.getValue().get(0);
+    assertEquals(key, message.routingKey());
+    assertEquals(contentType, message.contentType());
+    return message.payload();
   }
 }
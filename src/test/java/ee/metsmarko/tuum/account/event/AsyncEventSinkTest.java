@@ -0,0 +1,170 @@
+package ee.metsmarko.tuum.account.event;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class AsyncEventSinkTest {
+  private static final String EXCHANGE_NAME = "topic";
+  private final RabbitTemplate template = mock(RabbitTemplate.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final EventMessage message =
+      new EventMessage("account.create", "application/json", new byte[] {1});
+  // created by each test, the queue depth gauge is bound to the first sink of a registry
+  private AsyncEventSink sink;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(template.invoke(any())).thenAnswer(
+        invocation -> invocation.getArgument(0, RabbitOperations.OperationsCallback.class)
+            .doInRabbit(template)
+    );
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (sink != null && sink.isRunning()) {
+      sink.stop();
+    }
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void testPublish() {
+    sink = createSink(10);
+    confirmAfterNacks(0);
+    sink.start();
+
+    sink.publish(List.of(message));
+
+    verify(template, timeout(1000)).send(
+        eq(EXCHANGE_NAME), eq("account.create"),
+        argThat(amqpMessage -> amqpMessage.getBody() == message.payload()),
+        any(CorrelationData.class)
+    );
+  }
+
+  @Test
+  void testNackedEventIsRetried() {
+    sink = createSink(10);
+    confirmAfterNacks(1);
+    sink.start();
+
+    sink.publish(List.of(message));
+
+    verify(template, timeout(1000).times(2)).send(
+        eq(EXCHANGE_NAME), eq("account.create"),
+        argThat(amqpMessage -> amqpMessage.getBody() == message.payload()),
+        any(CorrelationData.class)
+    );
+    assertEquals(1, meterRegistry.counter("tuum.events.retried").count());
+  }
+
+  @Test
+  void testGiveUpAfterMaxAttempts() {
+    sink = createSink(10);
+    confirmAfterNacks(Integer.MAX_VALUE);
+    sink.start();
+
+    sink.publish(List.of(message));
+
+    verify(template, timeout(1000).times(2)).send(
+        anyString(), anyString(), any(), any(CorrelationData.class)
+    );
+    sink.stop();
+    verify(template, times(2)).send(
+        anyString(), anyString(), any(), any(CorrelationData.class)
+    );
+    assertEquals(1, meterRegistry.counter("tuum.events.failed").count());
+  }
+
+  @Test
+  void testEventIsQueuedAfterCommit() {
+    sink = createSink(10);
+    TransactionSynchronizationManager.initSynchronization();
+
+    sink.publish(List.of(message));
+
+    assertEquals(0, queueDepth());
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+    assertEquals(1, queueDepth());
+  }
+
+  @Test
+  void testEventIsDroppedWhenQueueIsFull() {
+    sink = createSink(1);
+
+    sink.publish(List.of(message, message));
+
+    assertEquals(1, queueDepth());
+    assertEquals(1, meterRegistry.counter("tuum.events.dropped").count());
+  }
+
+  @Test
+  void testInterruptedPublisherStops() throws InterruptedException {
+    sink = createSink(10);
+    sink.start();
+    Thread publisher = Thread.getAllStackTraces().keySet().stream()
+        .filter(thread -> thread.getName().equals("event-publisher-1"))
+        .findFirst().orElseThrow();
+
+    publisher.interrupt();
+
+    // the thread goes back to the pool and waits for a task instead of polling the queue again
+    long deadline = System.currentTimeMillis() + 1000;
+    while (publisher.getState() != Thread.State.WAITING
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(Thread.State.WAITING, publisher.getState());
+  }
+
+  private AsyncEventSink createSink(int queueCapacity) {
+    ConfirmedPublisher publisher = new ConfirmedPublisher(
+        new TopicExchange(EXCHANGE_NAME), Duration.ofMillis(100), meterRegistry
+    );
+    return new AsyncEventSink(template, publisher, meterRegistry, queueCapacity, 1, 10, 2, 1000);
+  }
+
+  private double queueDepth() {
+    return meterRegistry.get("tuum.events.queue.depth").gauge().value();
+  }
+
+  private void confirmAfterNacks(int nacks) {
+    AtomicInteger sent = new AtomicInteger();
+    doAnswer(invocation -> {
+      CorrelationData correlation = invocation.getArgument(3);
+      correlation.getFuture().set(
+          new CorrelationData.Confirm(sent.getAndIncrement() >= nacks, "nack")
+      );
+      return null;
+    }).when(template).send(anyString(), anyString(), any(), any(CorrelationData.class));
+  }
+}
@@ -0,0 +1,146 @@
+package ee.metsmarko.tuum.account.event;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.USD;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import ee.metsmarko.tuum.account.Money;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BinaryEventCodecTest {
+  private final BinaryEventCodec codec = new BinaryEventCodec();
+
+  @Test
+  void testAccountCreated() throws IOException {
+    AccountCreateEvent event = new AccountCreateEvent(UUID.randomUUID());
+
+    byte[] payload = codec.encode(event);
+
+    assertEquals(18, payload.length);
+    assertEquals(event, codec.decode(payload));
+  }
+
+  @Test
+  void testTransactionCreated() throws IOException {
+    TransactionCreateEvent event = new TransactionCreateEvent(
+        UUID.randomUUID(), UUID.randomUUID(), new Money(1234, EUR), EUR, OUT
+    );
+
+    byte[] payload = codec.encode(event);
+
+    assertEquals(45, payload.length);
+    assertEquals(event, codec.decode(payload));
+  }
+
+  @Test
+  void testBalanceChanged() throws IOException {
+    BalanceChangeEvent event = new BalanceChangeEvent(
+        UUID.randomUUID(), USD, new Money(1, USD), new Money(-123456789, USD), 42
+    );
+
+    assertEquals(event, codec.decode(codec.encode(event)));
+  }
+
+  @Test
+  void testBalanceChangedWithoutBalance() throws IOException {
+    BalanceChangeEvent event =
+        new BalanceChangeEvent(UUID.randomUUID(), EUR, new Money(1, EUR), null, 0);
+
+    byte[] payload = codec.encode(event);
+
+    assertEquals(37, payload.length);
+    assertEquals(event, codec.decode(payload));
+  }
+
+  @Test
+  void testBalanceChangedOfVersion2() throws IOException {
+    UUID accountId = UUID.randomUUID();
+    byte[] payload = ByteBuffer.allocate(45)
+        .put((byte) 2).put(BinaryEventCodec.BALANCE_CHANGED)
+        .putLong(accountId.getMostSignificantBits()).putLong(accountId.getLeastSignificantBits())
+        .put((byte) 1)
+        .put((byte) 2).putLong(100)
+        .put((byte) 2).putLong(1000)
+        .putLong(7)
+        .array();
+
+    assertEquals(
+        new BalanceChangeEvent(accountId, EUR, new Money(100, EUR), new Money(1000, EUR), 7),
+        codec.decode(payload)
+    );
+  }
+
+  @Test
+  void testBalanceChangedWithoutVersion() throws IOException {
+    UUID accountId = UUID.randomUUID();
+    byte[] payload = ByteBuffer.allocate(37)
+        .put((byte) 1).put(BinaryEventCodec.BALANCE_CHANGED)
+        .putLong(accountId.getMostSignificantBits()).putLong(accountId.getLeastSignificantBits())
+        .put((byte) 1)
+        .put((byte) 2).putLong(100)
+        .put((byte) 2).putLong(1000)
+        .array();
+
+    assertEquals(
+        new BalanceChangeEvent(accountId, EUR, new Money(100, EUR), new Money(1000, EUR), 0),
+        codec.decode(payload)
+    );
+  }
+
+  @Test
+  void testUnsupportedCurrency() {
+    byte[] payload = ByteBuffer.allocate(48)
+        .put(BinaryEventCodec.VERSION).put(BinaryEventCodec.BALANCE_CHANGED)
+        .putLong(1).putLong(2)
+        .put((byte) 0).put("CHF".getBytes(StandardCharsets.US_ASCII))
+        .put((byte) 2).putLong(100)
+        .put((byte) 2).putLong(100)
+        .putLong(1)
+        .array();
+
+    IOException ex = assertThrows(IOException.class, () -> codec.decode(payload));
+
+    assertEquals("unsupported currency CHF", ex.getMessage());
+  }
+
+  @Test
+  void testAmountDoesNotFitCurrency() throws IOException {
+    byte[] payload = codec.encode(new BalanceChangeEvent(
+        UUID.randomUUID(), EUR, new Money(1, EUR), new Money(1, EUR), 1
+    ));
+    // scale of the amount, after version, type, account id and currency
+    payload[19] = 3;
+
+    IOException ex = assertThrows(IOException.class, () -> codec.decode(payload));
+
+    assertEquals("amount does not fit its currency", ex.getMessage());
+  }
+
+  @Test
+  void testUnsupportedVersion() throws IOException {
+    byte[] payload = codec.encode(new AccountCreateEvent(UUID.randomUUID()));
+    payload[0] = 4;
+
+    IOException ex = assertThrows(IOException.class, () -> codec.decode(payload));
+
+    assertEquals("unsupported version 4", ex.getMessage());
+  }
+
+  @Test
+  void testTruncatedEvent() throws IOException {
+    byte[] payload = codec.encode(new AccountCreateEvent(UUID.randomUUID()));
+
+    IOException ex = assertThrows(
+        IOException.class, () -> codec.decode(Arrays.copyOf(payload, payload.length - 1))
+    );
+
+    assertEquals("truncated event", ex.getMessage());
+  }
+}
@@ -0,0 +1,105 @@
+package ee.metsmarko.tuum.account.event;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+class OutboxRelayTest {
+  private static final String EXCHANGE_NAME = "topic";
+  private final OutboxMapper outboxMapper = mock(OutboxMapper.class);
+  private final RabbitTemplate template = mock(RabbitTemplate.class);
+  private final ConfirmedPublisher publisher = new ConfirmedPublisher(
+      new TopicExchange(EXCHANGE_NAME), Duration.ofMillis(100), new SimpleMeterRegistry()
+  );
+  private final OutboxRelay relay = new OutboxRelay(
+      outboxMapper, template, publisher, TransactionOperations.withoutTransaction(), 2
+  );
+  private final OutboxEvent first = event(1);
+  private final OutboxEvent second = event(2);
+  private final OutboxEvent third = event(3);
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    when(template.invoke(any())).thenAnswer(
+        invocation -> invocation.getArgument(0, RabbitOperations.OperationsCallback.class)
+            .doInRabbit(template)
+    );
+  }
+
+  @Test
+  void testRelayUntilDrained() {
+    confirm(Set.of(first, second, third));
+    when(outboxMapper.lockNextEvents(2))
+        .thenReturn(List.of(first, second))
+        .thenReturn(List.of(third));
+
+    relay.relay();
+
+    verify(template).send(
+        eq(EXCHANGE_NAME), eq("account.create"),
+        argThat(message -> message.getBody() == first.payload()
+            && "application/json".equals(message.getMessageProperties().getContentType())),
+        any(CorrelationData.class)
+    );
+    verify(outboxMapper).deleteEvents(List.of(1L, 2L));
+    verify(outboxMapper).deleteEvents(List.of(3L));
+    verify(outboxMapper, times(2)).lockNextEvents(2);
+  }
+
+  @Test
+  void testUnconfirmedEventsStayInOutbox() {
+    confirm(Set.of(second));
+    when(outboxMapper.lockNextEvents(2)).thenReturn(List.of(first, second));
+
+    relay.relay();
+
+    verify(outboxMapper).deleteEvents(List.of(2L));
+    verify(outboxMapper, times(1)).lockNextEvents(2);
+  }
+
+  @Test
+  void testEmptyOutbox() {
+    when(outboxMapper.lockNextEvents(2)).thenReturn(List.of());
+
+    relay.relay();
+
+    verify(template, never()).invoke(any());
+    verify(outboxMapper, never()).deleteEvents(any());
+  }
+
+  private static OutboxEvent event(int id) {
+    return new OutboxEvent(id, "account.create", "application/json", new byte[] {(byte) id});
+  }
+
+  private void confirm(Set<OutboxEvent> acked) {
+    doAnswer(invocation -> {
+      byte[] payload = invocation.getArgument(2, Message.class).getBody();
+      CorrelationData correlation = invocation.getArgument(3);
+      correlation.getFuture().set(new CorrelationData.Confirm(
+          acked.stream().anyMatch(event -> event.payload() == payload), "nack"
+      ));
+      return null;
+    }).when(template).send(anyString(), anyString(), any(), any(CorrelationData.class));
+  }
+}
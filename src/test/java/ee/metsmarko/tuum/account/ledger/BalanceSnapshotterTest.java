@@ -0,0 +1,31 @@
+package ee.metsmarko.tuum.account.ledger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+class BalanceSnapshotterTest {
+  private final LedgerMapper ledgerMapper = mock(LedgerMapper.class);
+  private final BalanceSnapshotter snapshotter =
+      new BalanceSnapshotter(ledgerMapper, TransactionOperations.withoutTransaction(), 2);
+
+  @Test
+  void testFoldsUntilDeltasAreDrained() {
+    when(ledgerMapper.foldDeltas(2)).thenReturn(2, 2, 1);
+
+    snapshotter.snapshot();
+
+    verify(ledgerMapper, times(3)).foldDeltas(2);
+  }
+
+  @Test
+  void testNothingToFold() {
+    snapshotter.snapshot();
+
+    verify(ledgerMapper, times(1)).foldDeltas(2);
+  }
+}
@@ -0,0 +1,117 @@
+package ee.metsmarko.tuum.account.ledger;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.USD;
+import static ee.metsmarko.tuum.account.TransactionDirection.IN;
+import static ee.metsmarko.tuum.account.TransactionDirection.OUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.account.AccountMapper;
+import ee.metsmarko.tuum.account.BalanceKey;
+import ee.metsmarko.tuum.account.BalanceUpdate;
+import ee.metsmarko.tuum.account.LockedBalance;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.PostedTransaction;
+import ee.metsmarko.tuum.account.Transaction;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+class LedgerBalanceStoreTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final AccountMapper accountMapper = mock(AccountMapper.class);
+  private final LedgerMapper ledgerMapper = mock(LedgerMapper.class);
+  private final LedgerBalanceStore store =
+      new LedgerBalanceStore(accountMapper, ledgerMapper, 4);
+
+  @Test
+  void testCreditGoesToTurnoverSlot() {
+    Transaction transaction =
+        new Transaction(null, accountId, eur(1), EUR, IN, "desc", null);
+    ArgumentCaptor<Integer> slot = ArgumentCaptor.forClass(Integer.class);
+
+    for (int i = 0; i < 20; i++) {
+      store.credit(transaction, null);
+    }
+
+    verify(ledgerMapper, times(20)).credit(eq(transaction), isNull(), slot.capture());
+    assertTrue(slot.getAllValues().stream().allMatch(s -> s >= 0 && s < 4));
+    verifyNoInteractions(accountMapper);
+  }
+
+  @Test
+  void testDebitLocksSnapshotFirst() {
+    Transaction transaction =
+        new Transaction(null, accountId, eur(1), EUR, OUT, "desc", null);
+    Set<BalanceKey> keys = Set.of(new BalanceKey(accountId, EUR));
+    PostedTransaction posted = new PostedTransaction(UUID.randomUUID(), eur(10), 2);
+    when(accountMapper.lockBalances(keys)).thenReturn(
+        List.of(new LockedBalance(accountId, EUR, eur(1), 1))
+    );
+    when(ledgerMapper.debit(transaction, null)).thenReturn(posted);
+
+    assertEquals(posted, store.debit(transaction, null));
+
+    InOrder order = inOrder(accountMapper, ledgerMapper);
+    order.verify(accountMapper).lockBalances(keys);
+    order.verify(ledgerMapper).debit(transaction, null);
+  }
+
+  @Test
+  void testLockBalancesReadsDeltasAfterLocking() {
+    Set<BalanceKey> keys = Set.of(new BalanceKey(accountId, EUR));
+    List<LockedBalance> balances = List.of(new LockedBalance(accountId, EUR, eur(10), 3));
+    when(accountMapper.lockBalances(keys)).thenReturn(
+        List.of(new LockedBalance(accountId, EUR, eur(1), 1))
+    );
+    when(ledgerMapper.getBalances(keys)).thenReturn(balances);
+
+    assertEquals(balances, store.lockBalances(keys));
+  }
+
+  @Test
+  void testLockMissingBalances() {
+    assertTrue(store.lockBalances(Set.of(new BalanceKey(accountId, EUR))).isEmpty());
+
+    verify(ledgerMapper, never()).getBalances(any());
+  }
+
+  @Test
+  void testUnchangedBalancesAppendDeltas() {
+    // transactions that cancel each other out still count in the version of the balance
+    List<BalanceUpdate> updates = List.of(
+        new BalanceUpdate(accountId, EUR, eur(10), eur(1), 1),
+        new BalanceUpdate(accountId, USD, usd(1), Money.zero(USD), 2)
+    );
+
+    store.updateBalances(updates);
+    store.updateBalances(List.of());
+
+    verify(ledgerMapper).insertDeltas(updates);
+    verifyNoMoreInteractions(ledgerMapper);
+  }
+
+  private static Money eur(long amount) {
+    return Money.of(BigDecimal.valueOf(amount), EUR);
+  }
+
+  private static Money usd(long amount) {
+    return Money.of(BigDecimal.valueOf(amount), USD);
+  }
+}
@@ -0,0 +1,85 @@
+package ee.metsmarko.tuum.account.partition;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class TransactionPartitionMaintainerTest {
+  private final TransactionPartitionMapper partitionMapper = mock(TransactionPartitionMapper.class);
+
+  @Test
+  void testPartitionsAreCreatedAhead() {
+    new TransactionPartitionMaintainer(partitionMapper, 2, 0).maintain(YearMonth.of(2026, 11));
+
+    verify(partitionMapper).createTransactionPartition(
+        "transaction_2026_11", "2026-11-01T00:00:00Z", "2026-12-01T00:00:00Z"
+    );
+    verify(partitionMapper).createTransactionPartition(
+        "transaction_2026_12", "2026-12-01T00:00:00Z", "2027-01-01T00:00:00Z"
+    );
+    verify(partitionMapper).createTransactionPartition(
+        "transaction_2027_01", "2027-01-01T00:00:00Z", "2027-02-01T00:00:00Z"
+    );
+    verify(partitionMapper, never()).detachTransactionPartition(anyString());
+    verify(partitionMapper, never()).deleteIdempotencyKeysBefore(any());
+  }
+
+  @Test
+  void testOldPartitionsAreDetached() {
+    when(partitionMapper.getTransactionPartitions()).thenReturn(List.of(
+        "transaction_2025_09", "transaction_2025_10", "transaction_2026_10",
+        "transaction_before", "transaction_default"
+    ));
+
+    new TransactionPartitionMaintainer(partitionMapper, 0, 12).maintain(YearMonth.of(2026, 10));
+
+    verify(partitionMapper).detachTransactionPartition("transaction_2025_09");
+    verify(partitionMapper, never()).detachTransactionPartition("transaction_2025_10");
+    verify(partitionMapper, never()).detachTransactionPartition("transaction_before");
+    verify(partitionMapper).deleteIdempotencyKeysBefore(
+        OffsetDateTime.of(2025, 10, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+    );
+  }
+
+  @Test
+  void testKeysOfPartitionThatFailedToDetachAreKept() {
+    when(partitionMapper.getTransactionPartitions()).thenReturn(List.of(
+        "transaction_2025_08", "transaction_2025_09", "transaction_2026_10"
+    ));
+    doThrow(new DataIntegrityViolationException("lock timeout"))
+        .when(partitionMapper).detachTransactionPartition("transaction_2025_08");
+
+    new TransactionPartitionMaintainer(partitionMapper, 0, 12).maintain(YearMonth.of(2026, 10));
+
+    verify(partitionMapper).detachTransactionPartition("transaction_2025_09");
+    verify(partitionMapper).deleteIdempotencyKeysBefore(
+        OffsetDateTime.of(2025, 8, 1, 0, 0, 0, 0, ZoneOffset.UTC)
+    );
+  }
+
+  @Test
+  void testFailedPartitionDoesNotStopOthers() {
+    when(partitionMapper.getTransactionPartitions()).thenReturn(List.of());
+    doThrow(new DataIntegrityViolationException("rows in default"))
+        .when(partitionMapper).createTransactionPartition(
+            "transaction_2026_10", "2026-10-01T00:00:00Z", "2026-11-01T00:00:00Z"
+        );
+
+    new TransactionPartitionMaintainer(partitionMapper, 1, 12).maintain(YearMonth.of(2026, 10));
+
+    verify(partitionMapper).createTransactionPartition(
+        "transaction_2026_11", "2026-11-01T00:00:00Z", "2026-12-01T00:00:00Z"
+    );
+  }
+}
@@ -0,0 +1,72 @@
+package ee.metsmarko.tuum.account.projection;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.event.AccountCreateEvent;
+import ee.metsmarko.tuum.account.event.BalanceChangeEvent;
+import ee.metsmarko.tuum.account.event.BinaryEventCodec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.http.MediaType;
+
+class BalanceProjectionListenerTest {
+  private final BalanceProjection projection = mock(BalanceProjection.class);
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final BalanceProjectionListener listener =
+      new BalanceProjectionListener(projection, mapper);
+  private final BalanceChangeEvent event = new BalanceChangeEvent(
+      UUID.randomUUID(), EUR, new Money(100, EUR), new Money(1000, EUR), 3
+  );
+
+  @Test
+  void testJsonEvents() throws IOException {
+    AccountCreateEvent created = new AccountCreateEvent(UUID.randomUUID());
+
+    listener.onEvent(message(
+        "account.create", MediaType.APPLICATION_JSON_VALUE, mapper.writeValueAsBytes(created)
+    ));
+    listener.onEvent(message(
+        "account.balance.increase", MediaType.APPLICATION_JSON_VALUE,
+        mapper.writeValueAsBytes(event)
+    ));
+
+    verify(projection).accountCreated(created);
+    verify(projection).balanceChanged(event);
+  }
+
+  @Test
+  void testBinaryEvent() throws IOException {
+    listener.onEvent(message(
+        "account.balance.decrease", BinaryEventCodec.CONTENT_TYPE,
+        new BinaryEventCodec().encode(event)
+    ));
+
+    verify(projection).balanceChanged(event);
+  }
+
+  @Test
+  void testUnreadableEventIsDropped() {
+    listener.onEvent(message(
+        "account.balance.increase", MediaType.APPLICATION_JSON_VALUE,
+        "{".getBytes(StandardCharsets.UTF_8)
+    ));
+
+    verifyNoInteractions(projection);
+  }
+
+  private static Message message(String routingKey, String contentType, byte[] body) {
+    MessageProperties properties = new MessageProperties();
+    properties.setReceivedRoutingKey(routingKey);
+    properties.setContentType(contentType);
+    return new Message(body, properties);
+  }
+}
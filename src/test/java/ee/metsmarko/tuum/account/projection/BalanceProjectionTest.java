@@ -0,0 +1,228 @@
+package ee.metsmarko.tuum.account.projection;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static ee.metsmarko.tuum.account.Currency.USD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.event.AccountCreateEvent;
+import ee.metsmarko.tuum.account.event.BalanceChangeEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class BalanceProjectionTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final UUID customerId = UUID.randomUUID();
+  private final ProjectionMapper projectionMapper = mock(ProjectionMapper.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final BalanceProjection projection =
+      new BalanceProjection(projectionMapper, meterRegistry, "row", 1, 2);
+
+  @Test
+  void testRequiresRowBalancesInOneSlot() {
+    assertThrows(
+        IllegalStateException.class,
+        () -> new BalanceProjection(projectionMapper, meterRegistry, "ledger", 1, 2)
+    );
+    assertThrows(
+        IllegalStateException.class,
+        () -> new BalanceProjection(projectionMapper, meterRegistry, "row", 4, 2)
+    );
+  }
+
+  @Test
+  void testAccountIsLoadedOnce() {
+    when(projectionMapper.getBalances(accountId)).thenReturn(List.of(
+        row(accountId, new Money(100, EUR), 3), row(accountId, new Money(5, USD), 2)
+    ));
+
+    projection.getAccountById(accountId);
+    Account account = projection.getAccountById(accountId).orElseThrow();
+
+    assertEquals(customerId, account.getCustomerId());
+    assertEquals(new Money(100, EUR), account.getAccountBalances().get(0).getBalance());
+    assertEquals(new Money(5, USD), account.getAccountBalances().get(1).getBalance());
+    assertEquals(5, account.getVersion());
+    verify(projectionMapper, times(1)).getBalances(accountId);
+  }
+
+  @Test
+  void testMissingAccount() {
+    assertTrue(projection.getAccountById(accountId).isEmpty());
+  }
+
+  @Test
+  void testCreatedAccountIsLoaded() {
+    when(projectionMapper.getBalances(accountId))
+        .thenReturn(List.of(row(accountId, Money.zero(EUR), 0)));
+
+    projection.accountCreated(new AccountCreateEvent(accountId));
+
+    assertEquals(Money.zero(EUR), balance(EUR));
+    verify(projectionMapper, times(1)).getBalances(accountId);
+  }
+
+  @Test
+  void testNextVersionIsApplied() {
+    loadEur(100, 3);
+
+    projection.balanceChanged(event(10, 110, 4));
+
+    assertEquals(new Money(110, EUR), balance(EUR));
+    assertEquals(4, projection.getAccountById(accountId).orElseThrow().getVersion());
+    assertEquals(1, events("applied"));
+    verify(projectionMapper, times(1)).getBalances(accountId);
+  }
+
+  @Test
+  void testSeenVersionIsSkipped() {
+    loadEur(100, 3);
+
+    projection.balanceChanged(event(10, 90, 3));
+
+    assertEquals(new Money(100, EUR), balance(EUR));
+    assertEquals(1, events("skipped"));
+  }
+
+  @Test
+  void testGapReloadsAccount() {
+    loadEur(100, 3);
+    when(projectionMapper.getBalances(accountId))
+        .thenReturn(List.of(row(accountId, new Money(130, EUR), 6)));
+
+    // versions 4 and 5 were missed
+    projection.balanceChanged(event(10, 130, 6));
+    projection.balanceChanged(event(10, 120, 5));
+
+    assertEquals(new Money(130, EUR), balance(EUR));
+    assertEquals(1, events("reloaded"));
+    assertEquals(1, events("skipped"));
+    verify(projectionMapper, times(2)).getBalances(accountId);
+  }
+
+  @Test
+  void testEventWithoutVersionReloadsAccount() {
+    loadEur(100, 3);
+
+    projection.balanceChanged(event(10, 110, 0));
+
+    assertEquals(1, events("reloaded"));
+    verify(projectionMapper, times(2)).getBalances(accountId);
+  }
+
+  @Test
+  void testEventOfUnknownAccountLoadsIt() {
+    when(projectionMapper.getBalances(accountId))
+        .thenReturn(List.of(row(accountId, new Money(110, EUR), 4)));
+
+    projection.balanceChanged(event(10, 110, 4));
+
+    assertEquals(new Money(110, EUR), balance(EUR));
+    verify(projectionMapper, times(1)).getBalances(accountId);
+  }
+
+  @Test
+  void testRebuild() {
+    UUID otherAccountId = UUID.randomUUID();
+    UUID lastAccountId = UUID.randomUUID();
+    when(projectionMapper.getBalancesAfter(null, 2)).thenReturn(List.of(
+        row(accountId, new Money(100, EUR), 3), row(accountId, new Money(5, USD), 1),
+        row(otherAccountId, new Money(7, EUR), 1)
+    ));
+    when(projectionMapper.getBalancesAfter(otherAccountId, 2))
+        .thenReturn(List.of(row(lastAccountId, new Money(9, EUR), 2)));
+    when(projectionMapper.getBalancesAfter(lastAccountId, 2)).thenReturn(List.of());
+
+    projection.rebuild();
+
+    assertEquals(new Money(5, USD), balance(USD));
+    assertEquals(
+        new Money(7, EUR),
+        projection.getAccountById(otherAccountId).orElseThrow().getAccountBalances().get(0)
+            .getBalance()
+    );
+    assertEquals(3, meterRegistry.get("tuum.projection.accounts").gauge().value());
+    verify(projectionMapper, never()).getBalances(any());
+  }
+
+  @Test
+  void testRebuildKeepsNewerBalance() {
+    loadEur(100, 3);
+    projection.balanceChanged(event(10, 110, 4));
+    when(projectionMapper.getBalancesAfter(null, 2))
+        .thenReturn(List.of(row(accountId, new Money(100, EUR), 3)));
+    when(projectionMapper.getBalancesAfter(accountId, 2)).thenReturn(List.of());
+
+    projection.rebuild();
+
+    assertEquals(new Money(110, EUR), balance(EUR));
+  }
+
+  @Test
+  void testReconcileTakesNewerBalance() {
+    // the events of versions 4 and 5 were lost and no later event reloads the account
+    loadEur(100, 3);
+    when(projectionMapper.getBalancesAfter(null, 2))
+        .thenReturn(List.of(row(accountId, new Money(130, EUR), 5)));
+    when(projectionMapper.getBalancesAfter(accountId, 2)).thenReturn(List.of());
+
+    projection.reconcile();
+
+    assertEquals(new Money(130, EUR), balance(EUR));
+    assertEquals(1, meterRegistry.get("tuum.projection.reconciled").counter().count());
+  }
+
+  @Test
+  void testReconcileKeepsNewerBalance() {
+    loadEur(100, 3);
+    projection.balanceChanged(event(10, 110, 4));
+    when(projectionMapper.getBalancesAfter(null, 2))
+        .thenReturn(List.of(row(accountId, new Money(100, EUR), 3)));
+    when(projectionMapper.getBalancesAfter(accountId, 2)).thenReturn(List.of());
+
+    projection.reconcile();
+
+    assertEquals(new Money(110, EUR), balance(EUR));
+    assertEquals(0, meterRegistry.get("tuum.projection.reconciled").counter().count());
+  }
+
+  private void loadEur(long balance, long version) {
+    when(projectionMapper.getBalances(accountId))
+        .thenReturn(List.of(row(accountId, new Money(balance, EUR), version)));
+    projection.getAccountById(accountId);
+  }
+
+  private Money balance(Currency currency) {
+    return projection.getAccountById(accountId).orElseThrow().getAccountBalances().stream()
+        .filter(b -> b.getCurrency() == currency)
+        .findFirst().orElseThrow()
+        .getBalance();
+  }
+
+  private BalanceRow row(UUID id, Money balance, long version) {
+    return new BalanceRow(id, customerId, "EE", balance, version);
+  }
+
+  private BalanceChangeEvent event(long amount, long newBalance, long version) {
+    return new BalanceChangeEvent(
+        accountId, EUR, new Money(amount, EUR), new Money(newBalance, EUR), version
+    );
+  }
+
+  private double events(String outcome) {
+    return meterRegistry.get("tuum.projection.events").tag("outcome", outcome).counter().count();
+  }
+}
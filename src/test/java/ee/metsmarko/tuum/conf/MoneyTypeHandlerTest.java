@@ -0,0 +1,49 @@
+package ee.metsmarko.tuum.conf;
+
+import static ee.metsmarko.tuum.account.Currency.EUR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import ee.metsmarko.tuum.account.Money;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+
+class MoneyTypeHandlerTest {
+  private final MoneyTypeHandler typeHandler = new MoneyTypeHandler();
+  private final ResultSet rs = mock(ResultSet.class);
+  private final PreparedStatement ps = mock(PreparedStatement.class);
+
+  @Test
+  void testSetParameter() throws SQLException {
+    typeHandler.setParameter(ps, 1, new Money(1234, EUR), null);
+
+    verify(ps).setBigDecimal(1, new BigDecimal("12.34"));
+  }
+
+  @Test
+  void testColumnIsNotReadAsMoney() {
+    SQLException ex = assertThrows(
+        SQLException.class, () -> typeHandler.getNullableResult(rs, "balance")
+    );
+
+    assertEquals(
+        "column balance is read as Money, map it as BigDecimal with its currency", ex.getMessage()
+    );
+    verifyNoInteractions(rs);
+  }
+
+  @Test
+  void testColumnIndexIsNotReadAsMoney() {
+    CallableStatement cs = mock(CallableStatement.class);
+
+    assertThrows(SQLException.class, () -> typeHandler.getNullableResult(rs, 1));
+    assertThrows(SQLException.class, () -> typeHandler.getNullableResult(cs, 1));
+  }
+}
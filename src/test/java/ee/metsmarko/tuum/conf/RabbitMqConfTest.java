@@ -3,13 +3,28 @@ package ee.metsmarko.tuum.conf;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
 
 class RabbitMqConfTest {
+  private final RabbitMqConf conf = new RabbitMqConf();
+
   @Test
   void testCreateExchange() {
-    TopicExchange exchange = new RabbitMqConf().exchange("my-exchange");
+    TopicExchange exchange = conf.exchange("my-exchange");
 
     assertEquals("my-exchange", exchange.getName());
   }
+
+  @Test
+  void testCreateDeadLetterBinding() {
+    Queue queue = conf.deadLetterQueue("my-dead-letters");
+
+    Binding binding = conf.deadLetterBinding(queue, conf.exchange("my-exchange"));
+
+    assertEquals("my-dead-letters", binding.getDestination());
+    assertEquals("my-exchange", binding.getExchange());
+    assertEquals("dead-letter.#", binding.getRoutingKey());
+  }
 }
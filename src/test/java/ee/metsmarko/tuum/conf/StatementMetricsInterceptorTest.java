@@ -0,0 +1,153 @@
+package ee.metsmarko.tuum.conf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ee.metsmarko.tuum.account.Currency;
+import ee.metsmarko.tuum.account.Money;
+import ee.metsmarko.tuum.account.PostedTransaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class StatementMetricsInterceptorTest {
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final StatementMetricsInterceptor interceptor =
+      new StatementMetricsInterceptor(meterRegistry);
+  private final Executor executor = mock(Executor.class);
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void testStatementIsTimed() throws Throwable {
+    interceptor.intercept(update("ee.metsmarko.tuum.account.AccountMapper.createAccount"));
+
+    assertEquals(1, statementCount("AccountMapper.createAccount", "success"));
+    assertEquals(0, meterRegistry.get("tuum.balance.lock.wait").timer().count());
+  }
+
+  @Test
+  void testFailedStatementIsTimed() throws Exception {
+    when(executor.update(any(), any())).thenThrow(new SQLException("boom"));
+
+    // Plugin unwraps the InvocationTargetException before it reaches the mapper
+    assertThrows(InvocationTargetException.class, () -> interceptor.intercept(
+        update("ee.metsmarko.tuum.account.event.OutboxMapper.insertEvents")
+    ));
+
+    assertEquals(1, statementCount("OutboxMapper.insertEvents", "error"));
+  }
+
+  @Test
+  void testBalanceLockIsTimed() throws Throwable {
+    TransactionSynchronizationManager.initSynchronization();
+    when(executor.query(any(), any(), any(), any())).thenReturn(List.of(new Object()));
+
+    interceptor.intercept(query("ee.metsmarko.tuum.account.AccountMapper.lockBalances"));
+
+    assertEquals(1, statementCount("AccountMapper.lockBalances", "success"));
+    assertEquals(1, meterRegistry.get("tuum.balance.lock.wait").timer().count());
+    assertEquals(0, meterRegistry.get("tuum.balance.lock.held").timer().count());
+    completeTransaction();
+    assertEquals(1, meterRegistry.get("tuum.balance.lock.held").timer().count());
+  }
+
+  @Test
+  void testLockHeldIsTimedOncePerTransaction() throws Throwable {
+    TransactionSynchronizationManager.initSynchronization();
+    when(executor.query(any(), any(), any(), any())).thenReturn(List.of(new Object()));
+
+    interceptor.intercept(query("ee.metsmarko.tuum.account.AccountMapper.debit"));
+    interceptor.intercept(query("ee.metsmarko.tuum.account.AccountMapper.lockBalances"));
+    completeTransaction();
+
+    // the debit also writes the transaction, its time is not lock wait
+    assertEquals(1, meterRegistry.get("tuum.balance.lock.wait").timer().count());
+    assertEquals(1, meterRegistry.get("tuum.balance.lock.held").timer().count());
+  }
+
+  @Test
+  void testLockWaitOfCreditIsRecorded() throws Throwable {
+    when(executor.query(any(), any(), any(), any())).thenReturn(List.of(new PostedTransaction(
+        UUID.randomUUID(), Money.zero(Currency.EUR), 1, TimeUnit.MILLISECONDS.toNanos(5)
+    )));
+
+    interceptor.intercept(query("ee.metsmarko.tuum.account.AccountMapper.credit"));
+
+    Timer lockWait = meterRegistry.get("tuum.balance.lock.wait").timer();
+    assertEquals(1, lockWait.count());
+    assertEquals(5, lockWait.totalTime(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void testDebitWithoutRowsHoldsNoLock() throws Throwable {
+    TransactionSynchronizationManager.initSynchronization();
+    when(executor.query(any(), any(), any(), any())).thenReturn(List.of());
+
+    interceptor.intercept(query("ee.metsmarko.tuum.account.AccountMapper.debit"));
+    completeTransaction();
+
+    assertEquals(1, statementCount("AccountMapper.debit", "success"));
+    assertEquals(0, meterRegistry.get("tuum.balance.lock.held").timer().count());
+  }
+
+  private void completeTransaction() {
+    TransactionSynchronizationManager.getSynchronizations().forEach(
+        s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED)
+    );
+  }
+
+  private long statementCount(String statement, String outcome) {
+    return meterRegistry.get("tuum.mapper.statement")
+        .tags("statement", statement, "outcome", outcome)
+        .timer().count();
+  }
+
+  private Invocation update(String statementId) throws NoSuchMethodException {
+    Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+    return new Invocation(
+        executor, update, new Object[] {statement(statementId, SqlCommandType.UPDATE), null}
+    );
+  }
+
+  private Invocation query(String statementId) throws NoSuchMethodException {
+    Method query = Executor.class.getMethod(
+        "query", MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class
+    );
+    return new Invocation(executor, query, new Object[] {
+        statement(statementId, SqlCommandType.SELECT), null, RowBounds.DEFAULT, null
+    });
+  }
+
+  private static MappedStatement statement(String statementId, SqlCommandType type) {
+    return new MappedStatement.Builder(
+        new Configuration(), statementId, mock(SqlSource.class), type
+    ).build();
+  }
+}
@@ -0,0 +1,116 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ee.metsmarko.tuum.account.Account;
+import ee.metsmarko.tuum.account.AccountService;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import javax.servlet.DispatcherType;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+class RateLimitInterceptorTest {
+  private final UUID accountId = UUID.randomUUID();
+  private final UUID customerId = UUID.randomUUID();
+  private final RateLimiter rateLimiter = mock(RateLimiter.class);
+  private final AccountService accountService = mock(AccountService.class);
+  private final RateLimitInterceptor interceptor =
+      new RateLimitInterceptor(rateLimiter, accountService, new ObjectMapper());
+  private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+  @Test
+  void testAllowed() throws Exception {
+    when(accountService.getAccountById(accountId))
+        .thenReturn(Optional.of(new Account(accountId, customerId, "EE", List.of())));
+    when(rateLimiter.tryAcquire(eq(accountId), any())).thenAnswer(invocation -> {
+      Function<UUID, UUID> customerOf = invocation.getArgument(1);
+      assertEquals(customerId, customerOf.apply(accountId));
+      return 0L;
+    });
+
+    assertTrue(interceptor.preHandle(request("/transaction"), response, handler("limited")));
+
+    verify(rateLimiter).tryAcquire(eq(accountId), any());
+    assertEquals(200, response.getStatus());
+  }
+
+  @Test
+  void testPathWithTrailingSlash() throws Exception {
+    interceptor.preHandle(request("/transaction/"), response, handler("limited"));
+
+    verify(rateLimiter).tryAcquire(eq(accountId), any());
+  }
+
+  @Test
+  void testThrottled() throws Exception {
+    when(rateLimiter.tryAcquire(eq(accountId), any()))
+        .thenReturn(TimeUnit.MILLISECONDS.toNanos(1500));
+
+    assertFalse(interceptor.preHandle(request("/transaction"), response, handler("limited")));
+
+    // the account bucket is checked by the mocked limiter, the customer is never looked up
+    verifyNoInteractions(accountService);
+    assertEquals(429, response.getStatus());
+    assertEquals("2", response.getHeader(HttpHeaders.RETRY_AFTER));
+    assertEquals("{\"error\":\"too many requests\"}", response.getContentAsString());
+  }
+
+  @Test
+  void testAsyncDispatchIsNotLimitedAgain() throws Exception {
+    MockHttpServletRequest request = request("/transaction");
+    request.setDispatcherType(DispatcherType.ASYNC);
+
+    assertTrue(interceptor.preHandle(request, response, handler("limited")));
+
+    verifyNoInteractions(rateLimiter);
+  }
+
+  @Test
+  void testOtherHandlersAreNotLimited() throws Exception {
+    assertTrue(interceptor.preHandle(request("/transactions"), response, handler("notLimited")));
+
+    verifyNoInteractions(rateLimiter);
+    assertNull(response.getHeader(HttpHeaders.RETRY_AFTER));
+  }
+
+  private MockHttpServletRequest request(String path) {
+    MockHttpServletRequest request =
+        new MockHttpServletRequest("POST", "/api/account/" + accountId + path);
+    request.setAttribute(
+        HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("accountId", accountId.toString())
+    );
+    return request;
+  }
+
+  private static HandlerMethod handler(String name) throws NoSuchMethodException {
+    return new HandlerMethod(new Handlers(), Handlers.class.getMethod(name));
+  }
+
+  static class Handlers {
+    @RateLimited
+    public void limited() {
+    }
+
+    public void notLimited() {
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package ee.metsmarko.tuum.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+  private final UUID accountId = UUID.randomUUID();
+  private final UUID customerId = UUID.randomUUID();
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  // accounts: 10 per second, burst of 2, customers: 20 per second, burst of 3
+  private final RateLimiter rateLimiter = new RateLimiter(meterRegistry, 10, 2, 20, 3);
+
+  @Test
+  void testBurstThenRefill() {
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> customerId, 0));
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> customerId, 0));
+
+    assertEquals(SECOND / 10, rateLimiter.tryAcquire(accountId, id -> customerId, 0));
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> customerId, SECOND / 10));
+    assertEquals(1, throttled("account"));
+  }
+
+  @Test
+  void testCustomerLimitSpansAccounts() {
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, rateLimiter.tryAcquire(UUID.randomUUID(), id -> customerId, 0));
+    }
+
+    assertEquals(SECOND / 20, rateLimiter.tryAcquire(accountId, id -> customerId, 0));
+    assertEquals(1, throttled("customer"));
+    // the throttled request did not take a token of the account
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> null, 0));
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> null, 0));
+  }
+
+  @Test
+  void testUnknownCustomer() {
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> null, 0));
+    assertEquals(0, rateLimiter.tryAcquire(accountId, id -> null, 0));
+
+    assertTrue(rateLimiter.tryAcquire(accountId, id -> null, 0) > 0);
+  }
+
+  @Test
+  void testThrottledAccountDoesNotResolveCustomer() {
+    rateLimiter.tryAcquire(accountId, id -> customerId, 0);
+    rateLimiter.tryAcquire(accountId, id -> customerId, 0);
+
+    assertTrue(rateLimiter.tryAcquire(accountId, id -> {
+      throw new AssertionError("customer resolved for a throttled account");
+    }, 0) > 0);
+  }
+
+  @Test
+  void testEvictIdle() {
+    rateLimiter.tryAcquire(accountId, id -> customerId, 0);
+    rateLimiter.evictIdle(0);
+    assertEquals(1, buckets("account"));
+    assertEquals(1, buckets("customer"));
+
+    rateLimiter.evictIdle(SECOND / 10);
+
+    assertEquals(0, buckets("account"));
+    assertEquals(0, buckets("customer"));
+  }
+
+  private double throttled(String scope) {
+    return meterRegistry.get("tuum.rate-limit.throttled").tag("scope", scope).counter().count();
+  }
+
+  private double buckets(String scope) {
+    return meterRegistry.get("tuum.rate-limit.buckets").tag("scope", scope).gauge().value();
+  }
+}
@@ -0,0 +1,37 @@
+package ee.metsmarko.tuum.replica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+class ReplicaConfTest {
+
+  @Test
+  void testPoolsUseHikariSettings() {
+    DataSourceProperties properties = new DataSourceProperties();
+    properties.setUrl("jdbc:postgresql://primary:5432/account");
+    properties.setUsername("tuum");
+    properties.setPassword("secret");
+    HikariConfig hikariConfig = new HikariConfig();
+    hikariConfig.setMaximumPoolSize(40);
+    hikariConfig.setConnectionTimeout(2000);
+
+    try (HikariDataSource replica = ReplicaConf.pool(
+        properties, hikariConfig, "jdbc:postgresql://replica:5432/account", "replica-0", true
+    )) {
+      assertEquals(40, replica.getMaximumPoolSize());
+      assertEquals(2000, replica.getConnectionTimeout());
+      assertEquals("jdbc:postgresql://replica:5432/account", replica.getJdbcUrl());
+      assertEquals("tuum", replica.getUsername());
+      assertEquals("replica-0", replica.getPoolName());
+      assertTrue(replica.isReadOnly());
+    }
+    // the bound settings are copied, not changed
+    assertNull(hikariConfig.getPoolName());
+  }
+}
@@ -0,0 +1,97 @@
+package ee.metsmarko.tuum.replica;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReplicaRoutingDataSourceTest {
+  private final ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(
+      mock(DataSource.class), List.of(mock(DataSource.class), mock(DataSource.class))
+  );
+
+  @BeforeEach
+  void setUp() {
+    dataSource.setReplayPosition(0, ReadConsistency.parse("0/100"));
+    dataSource.setReplayPosition(1, ReadConsistency.parse("0/200"));
+  }
+
+  @AfterEach
+  void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReadConsistency.clear();
+  }
+
+  @Test
+  void testWritesGoToPrimary() {
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testReadsAreSpreadOverReplicas() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-0", dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testReadWithTokenGoesToCaughtUpReplica() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReadConsistency.require("0/180");
+
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testReadWithTokenGoesToPrimaryWhenReplicasLag() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReadConsistency.require("1/0");
+
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testReadWithInvalidTokenGoesToPrimary() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReadConsistency.require("invalid");
+
+    assertEquals(ReplicaRoutingDataSource.PRIMARY, dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testUnpolledReplicaIsNotUsed() {
+    dataSource.setReplayPosition(0, -1);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+    assertEquals("replica-1", dataSource.determineCurrentLookupKey());
+  }
+
+  @Test
+  void testDestroyClosesPools() {
+    HikariDataSource primary = mock(HikariDataSource.class);
+    HikariDataSource replica = mock(HikariDataSource.class);
+    doThrow(new IllegalStateException("closed")).when(primary).close();
+
+    new ReplicaRoutingDataSource(primary, List.of(replica)).destroy();
+
+    verify(primary).close();
+    verify(replica).close();
+  }
+
+  @Test
+  void testParseLsn() {
+    assertEquals(0x16B374D848L, ReadConsistency.parse("16/B374D848"));
+  }
+}